@@ -0,0 +1,133 @@
+/**
+ * The MIT License Copyright (c) 2015 Teal Cube Games
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package info.faceland.mint;
+
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.nunnerycode.mint.BenchmarkServer;
+import org.nunnerycode.mint.MintPlugin;
+import org.nunnerycode.mint.accounts.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The Vault calls other plugins make on every shop click and mob kill, through each of the ways
+ * they can name a player.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class MintEconomyBenchmark {
+
+  private static final long START_BALANCE = Money.toMinor(1e12);
+
+  @Param({"1000", "100000"})
+  private int accounts;
+
+  private MintEconomy economy;
+  private OfflinePlayer[] players;
+  private String[] names;
+  private String[] uuidStrings;
+
+  @Setup
+  public void setUp() throws Exception {
+    MintPlugin plugin = BenchmarkServer.createPlugin(
+        Files.createTempDirectory("bullion-economy").toFile());
+    economy = plugin.getEconomy();
+    players = new OfflinePlayer[accounts];
+    names = new String[accounts];
+    uuidStrings = new String[accounts];
+    for (int i = 0; i < accounts; i++) {
+      names[i] = "player" + i;
+      players[i] = Bukkit.getOfflinePlayer(names[i]);
+      UUID uuid = players[i].getUniqueId();
+      uuidStrings[i] = uuid.toString();
+      plugin.getManager().setPlayerBalance(uuid, START_BALANCE);
+      economy.getUuidResolver().remember(names[i], uuid);
+    }
+  }
+
+  private int next() {
+    return ThreadLocalRandom.current().nextInt(accounts);
+  }
+
+  @Benchmark
+  public double getBalancePlayer() {
+    return economy.getBalance(players[next()]);
+  }
+
+  @Benchmark
+  public double getBalanceName() {
+    return economy.getBalance(names[next()]);
+  }
+
+  @Benchmark
+  public double getBalanceUuidString() {
+    return economy.getBalance(uuidStrings[next()]);
+  }
+
+  @Benchmark
+  public boolean hasPlayer() {
+    return economy.has(players[next()], 10);
+  }
+
+  @Benchmark
+  public boolean hasName() {
+    return economy.has(names[next()], 10);
+  }
+
+  @Benchmark
+  public Object withdrawPlayer() {
+    return economy.withdrawPlayer(players[next()], 1.25);
+  }
+
+  @Benchmark
+  public Object withdrawName() {
+    return economy.withdrawPlayer(names[next()], 1.25);
+  }
+
+  @Benchmark
+  public Object depositPlayer() {
+    return economy.depositPlayer(players[next()], 1.25);
+  }
+
+  @Benchmark
+  public Object depositName() {
+    return economy.depositPlayer(names[next()], 1.25);
+  }
+
+  @Benchmark
+  public Object depositUuidString() {
+    return economy.depositPlayer(uuidStrings[next()], 1.25);
+  }
+}
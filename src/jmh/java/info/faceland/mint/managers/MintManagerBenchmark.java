@@ -0,0 +1,108 @@
+/**
+ * The MIT License Copyright (c) 2015 Teal Cube Games
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package info.faceland.mint.managers;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.nunnerycode.mint.accounts.Transfer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link MintManager} with several threads on it at once. With 16 accounts the threads keep
+ * running into each other's stripe locks, with 100k they hardly ever do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+@Threads(4)
+public class MintManagerBenchmark {
+
+  private static final long START_BALANCE = 1_000_000_000_000L;
+
+  @Param({"16", "100000"})
+  private int accounts;
+
+  private MintManager manager;
+  private UUID[] uuids;
+
+  @Setup
+  public void setUp() {
+    manager = new MintManager();
+    uuids = new UUID[accounts];
+    for (int i = 0; i < accounts; i++) {
+      uuids[i] = UUID.randomUUID();
+      manager.setPlayerBalance(uuids[i], START_BALANCE);
+    }
+  }
+
+  private UUID next() {
+    return uuids[ThreadLocalRandom.current().nextInt(accounts)];
+  }
+
+  @Benchmark
+  public long get() {
+    return manager.getPlayerBalance(next());
+  }
+
+  @Benchmark
+  public long add() {
+    return manager.addPlayerBalance(next(), ThreadLocalRandom.current().nextBoolean() ? 1 : -1, 0L);
+  }
+
+  @Benchmark
+  public boolean transferAll() {
+    UUID from = next();
+    UUID to = next();
+    if (from.equals(to)) {
+      return false;
+    }
+    return manager.transferAll(Arrays.asList(Transfer.betweenPlayers(from, to, 1),
+        Transfer.betweenPlayers(to, from, 1)));
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(3)
+  public long mixedGet() {
+    return get();
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public long mixedAdd() {
+    return add();
+  }
+}
@@ -0,0 +1,79 @@
+/**
+ * The MIT License Copyright (c) 2015 Teal Cube Games
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package info.faceland.mint.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The lore parsing a pickup falls back to for drops that have no value stored on the entity,
+ * next to reading the stored number itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class CashValueBenchmark {
+
+  private static final int LINES = 1024;
+
+  private String[] plainLines;
+  private String[] colouredLines;
+
+  @Setup
+  public void setUp() {
+    plainLines = new String[LINES];
+    colouredLines = new String[LINES];
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < LINES; i++) {
+      double value = Math.round(random.nextDouble(1, 10_000) * 100) / 100D;
+      plainLines[i] = Double.toString(value);
+      colouredLines[i] = "§e" + value + " Bits";
+    }
+  }
+
+  private int next() {
+    return ThreadLocalRandom.current().nextInt(LINES);
+  }
+
+  @Benchmark
+  public double parsePlain() {
+    return MintUtil.parseLoreValue(plainLines[next()]);
+  }
+
+  @Benchmark
+  public double parseColoured() {
+    return MintUtil.parseLoreValue(colouredLines[next()]);
+  }
+
+  @Benchmark
+  public double parseDouble() {
+    return Double.parseDouble(plainLines[next()]);
+  }
+}
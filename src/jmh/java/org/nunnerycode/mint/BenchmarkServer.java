@@ -0,0 +1,236 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.nunnerycode.mint;
+
+import info.faceland.mint.MintEconomy;
+import info.faceland.mint.managers.MintManager;
+import io.papermc.paper.plugin.configuration.PluginMeta;
+import io.papermc.paper.plugin.provider.classloader.ConfiguredPluginClassLoader;
+import io.papermc.paper.plugin.provider.classloader.PluginClassLoaderGroup;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Just enough of a Bukkit server to run the economy outside of Minecraft. Events go nowhere,
+ * every call is made from the primary thread and offline players get offline-mode UUIDs.
+ */
+public final class BenchmarkServer {
+    private static final Logger LOGGER = Logger.getLogger("bullion-benchmarks");
+    private static final String PLUGIN_CLASS = "org.nunnerycode.mint.BenchmarkPlugin";
+
+    private BenchmarkServer() {
+    }
+
+    /**
+     * Installs the stub server once and returns a new plugin with a fresh manager and economy
+     * that keeps its files in {@code dataFolder}.
+     */
+    public static synchronized MintPlugin createPlugin(File dataFolder) {
+        if (Bukkit.getServer() == null) {
+            Bukkit.setServer(stub(Server.class, (name, args) -> {
+                switch (name) {
+                    case "getLogger":
+                        return LOGGER;
+                    case "isPrimaryThread":
+                        return true;
+                    case "getPluginManager":
+                        return stub(PluginManager.class, (n, a) -> null);
+                    case "getOfflinePlayer":
+                        return args[0] instanceof UUID ? offlinePlayer((UUID) args[0]) : offlinePlayer(
+                                UUID.nameUUIDFromBytes(("OfflinePlayer:" + args[0]).getBytes(StandardCharsets.UTF_8)));
+                    case "getName":
+                    case "getVersion":
+                    case "getBukkitVersion":
+                        return "stub";
+                    default:
+                        return null;
+                }
+            }));
+        }
+        MintPlugin plugin;
+        try {
+            plugin = (MintPlugin) new PluginLoader().loadClass(PLUGIN_CLASS).getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("unable to create the plugin", e);
+        }
+        set(JavaPlugin.class, "server", plugin, Bukkit.getServer());
+        set(JavaPlugin.class, "description", plugin,
+                new PluginDescriptionFile("Bullion", "benchmark", MintPlugin.class.getName()));
+        set(JavaPlugin.class, "logger", plugin, LOGGER);
+        set(JavaPlugin.class, "dataFolder", plugin, dataFolder);
+        set(MintPlugin.class, "manager", plugin, new MintManager());
+        set(MintPlugin.class, "economy", plugin, new MintEconomy(plugin, "coin", "coins"));
+        return plugin;
+    }
+
+    public static OfflinePlayer offlinePlayer(UUID uuid) {
+        return stub(OfflinePlayer.class, (name, args) -> {
+            switch (name) {
+                case "getUniqueId":
+                    return uuid;
+                case "getName":
+                    return uuid.toString();
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * Defines {@link BenchmarkPlugin} itself and leaves every other class to the benchmark class
+     * loader. JavaPlugin only accepts plugins whose class comes from a plugin class loader, and
+     * hands each new plugin to {@link #init(JavaPlugin)}, which leaves its fields to be set above.
+     */
+    private static final class PluginLoader extends ClassLoader implements ConfiguredPluginClassLoader {
+        private JavaPlugin plugin;
+
+        private PluginLoader() {
+            super(BenchmarkServer.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!PLUGIN_CLASS.equals(name)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                        if (in == null) {
+                            throw new ClassNotFoundException(name);
+                        }
+                        byte[] bytes = in.readAllBytes();
+                        type = defineClass(name, bytes, 0, bytes.length);
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(type);
+                }
+                return type;
+            }
+        }
+
+        @Override
+        public Class<?> loadClass(String name, boolean resolve, boolean checkGlobal, boolean checkLibraries)
+                throws ClassNotFoundException {
+            return loadClass(name, resolve);
+        }
+
+        @Override
+        public PluginMeta getConfiguration() {
+            return null;
+        }
+
+        @Override
+        public void init(JavaPlugin plugin) {
+            this.plugin = plugin;
+        }
+
+        @Override
+        public JavaPlugin getPlugin() {
+            return plugin;
+        }
+
+        @Override
+        public PluginClassLoaderGroup getGroup() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private interface Handler {
+        Object handle(String method, Object[] args);
+    }
+
+    private static <T> T stub(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(BenchmarkServer.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return type.getSimpleName() + "Stub";
+                        default:
+                            Object value = handler.handle(method.getName(), args == null ? new Object[0] : args);
+                            return value != null ? value : defaultValue(method.getReturnType());
+                    }
+                }));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == float.class || type == double.class) {
+            return type == float.class ? (Object) 0F : (Object) 0D;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        return type == short.class ? (Object) (short) 0 : (Object) 0;
+    }
+
+    private static void set(Class<?> owner, String name, Object target, Object value) {
+        try {
+            Field field = owner.getDeclaredField(name);
+            if (value != null && !field.getType().isInstance(value)) {
+                throw new IllegalStateException(owner.getSimpleName() + "." + name + " is a "
+                        + field.getType().getSimpleName() + ", not a " + value.getClass().getSimpleName());
+            }
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("unable to set " + owner.getSimpleName() + "." + name, e);
+        }
+    }
+}
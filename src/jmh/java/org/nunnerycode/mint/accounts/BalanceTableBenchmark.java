@@ -0,0 +1,109 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.nunnerycode.mint.accounts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Compares {@link BalanceTable} against the {@code ConcurrentHashMap<UUID, PlayerAccount>} it
+ * replaced, for the read and write done on every economy call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class BalanceTableBenchmark {
+    private static final ToLongFunction<UUID> ZERO = uuid -> 0L;
+
+    @Param({"1000", "100000"})
+    private int accounts;
+
+    private UUID[] uuids;
+    private Map<UUID, PlayerAccount> accountMap;
+    private BalanceTable balanceTable;
+
+    @Setup
+    public void setUp() {
+        uuids = new UUID[accounts];
+        accountMap = new ConcurrentHashMap<>();
+        balanceTable = new BalanceTable();
+        for (int i = 0; i < accounts; i++) {
+            uuids[i] = UUID.randomUUID();
+            accountMap.put(uuids[i], new PlayerAccount(uuids[i], i));
+            balanceTable.put(uuids[i], i, false);
+        }
+    }
+
+    private UUID next() {
+        return uuids[ThreadLocalRandom.current().nextInt(uuids.length)];
+    }
+
+    @Benchmark
+    public long mapGet() {
+        UUID uuid = next();
+        if (!accountMap.containsKey(uuid)) {
+            accountMap.put(uuid, new PlayerAccount(uuid));
+        }
+        return accountMap.get(uuid).getBalance();
+    }
+
+    @Benchmark
+    public long tableGet() {
+        return balanceTable.computeIfAbsent(next(), ZERO);
+    }
+
+    @Benchmark
+    public void mapSet() {
+        UUID uuid = next();
+        if (!accountMap.containsKey(uuid)) {
+            accountMap.put(uuid, new PlayerAccount(uuid));
+        }
+        PlayerAccount account = accountMap.get(uuid);
+        account.setBalance(account.getBalance() + 1);
+    }
+
+    @Benchmark
+    public void tableSet() {
+        UUID uuid = next();
+        balanceTable.put(uuid, balanceTable.computeIfAbsent(uuid, ZERO) + 1, true);
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.nunnerycode.mint.storage;
+
+import org.nunnerycode.mint.BenchmarkServer;
+import org.nunnerycode.mint.MintPlugin;
+import org.nunnerycode.mint.accounts.BankAccount;
+import org.nunnerycode.mint.accounts.PlayerAccount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Loading and saving every account at once, as done on startup and on each autosave. One bank
+ * account is written for every ten players, which is about what live servers have.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-XX:+UseParallelGC", "-Xmx4g"})
+public class DataStorageBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    private int accounts;
+
+    @Param({"yaml", "binary"})
+    private String type;
+
+    private Path dataFolder;
+    private MintPlugin plugin;
+    private Set<PlayerAccount> playerAccounts;
+    private Set<BankAccount> bankAccounts;
+    private DataStorage storage;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataFolder = Files.createTempDirectory("bullion-storage");
+        plugin = BenchmarkServer.createPlugin(dataFolder.toFile());
+        playerAccounts = new HashSet<>();
+        bankAccounts = new HashSet<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < accounts; i++) {
+            UUID uuid = UUID.randomUUID();
+            playerAccounts.add(new PlayerAccount(uuid, random.nextLong(100_000_000L)));
+            if (i % 10 == 0) {
+                bankAccounts.add(new BankAccount(uuid, random.nextLong(100_000_000L)));
+            }
+        }
+        storage = create();
+        storage.initialize();
+        if (!storage.saveAccounts(playerAccounts, bankAccounts, Collections.<UUID>emptySet())) {
+            throw new IllegalStateException("unable to write " + accounts + " accounts");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dataFolder)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private DataStorage create() {
+        return "yaml".equals(type) ? new YamlDataStorage(plugin) : new BinaryDataStorage(plugin);
+    }
+
+    @Benchmark
+    public int load() {
+        DataStorage loaded = create();
+        loaded.initialize();
+        return loaded.loadPlayerAccounts().size() + loaded.loadBankAccounts().size();
+    }
+
+    @Benchmark
+    public boolean save() {
+        return storage.saveAccounts(playerAccounts, bankAccounts, Collections.<UUID>emptySet());
+    }
+}
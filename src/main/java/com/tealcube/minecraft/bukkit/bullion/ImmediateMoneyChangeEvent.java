@@ -0,0 +1,67 @@
+/*
+ * The MIT License
+ * Copyright © 2015 Pixel Outlaw
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.bullion;
+
+import info.faceland.mint.MintEvent;
+import java.util.UUID;
+import lombok.Getter;
+import org.bukkit.Bukkit;
+import org.bukkit.event.HandlerList;
+
+/**
+ * Fired for every single balance change while money events are coalesced, for listeners that
+ * cannot wait for the {@link MoneyChangeEvent} at the end of the tick. Has its own handler list
+ * so it is only created when someone listens for it.
+ */
+public class ImmediateMoneyChangeEvent extends MintEvent {
+
+  private static final HandlerList HANDLER_LIST = new HandlerList();
+
+  @Getter
+  private final UUID player;
+  @Getter
+  private final double oldValue;
+  @Getter
+  private final double newValue;
+
+  public ImmediateMoneyChangeEvent(UUID player, double oldValue, double newValue) {
+    super(!Bukkit.isPrimaryThread());
+    this.oldValue = oldValue;
+    this.newValue = newValue;
+    this.player = player;
+  }
+
+  public static HandlerList getHandlerList() {
+    return HANDLER_LIST;
+  }
+
+  public static boolean hasListeners() {
+    return HANDLER_LIST.getRegisteredListeners().length > 0;
+  }
+
+  @Override
+  public HandlerList getHandlers() {
+    return HANDLER_LIST;
+  }
+
+}
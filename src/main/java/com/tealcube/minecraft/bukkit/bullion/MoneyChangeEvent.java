@@ -25,6 +25,7 @@ package com.tealcube.minecraft.bukkit.bullion;
 import info.faceland.mint.MintEvent;
 import java.util.UUID;
 import lombok.Getter;
+import org.bukkit.Bukkit;
 
 public class MoneyChangeEvent extends MintEvent {
 
@@ -35,7 +36,12 @@ public class MoneyChangeEvent extends MintEvent {
   @Getter
   private final double newValue;
 
+  /**
+   * Balances can change from any thread, so the event is fired as async whenever it is not created
+   * on the main thread.
+   */
   public MoneyChangeEvent(UUID player, double oldValue, double newValue) {
+    super(!Bukkit.isPrimaryThread());
     this.oldValue = oldValue;
     this.newValue = newValue;
     this.player = player;
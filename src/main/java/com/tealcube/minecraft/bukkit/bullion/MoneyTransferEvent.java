@@ -0,0 +1,48 @@
+/*
+ * The MIT License
+ * Copyright © 2015 Pixel Outlaw
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.bullion;
+
+import info.faceland.mint.MintEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.Getter;
+import org.bukkit.Bukkit;
+import org.nunnerycode.mint.accounts.Transfer;
+
+/**
+ * Fired once for a batch of transfers that were all applied, after the MoneyChangeEvent of every
+ * player account involved. Amounts are in minor units, see
+ * {@link org.nunnerycode.mint.accounts.Money}.
+ */
+public class MoneyTransferEvent extends MintEvent {
+
+  @Getter
+  private final List<Transfer> transfers;
+
+  public MoneyTransferEvent(List<Transfer> transfers) {
+    super(!Bukkit.isPrimaryThread());
+    this.transfers = Collections.unmodifiableList(new ArrayList<>(transfers));
+  }
+
+}
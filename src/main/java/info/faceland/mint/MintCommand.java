@@ -25,9 +25,13 @@ import com.tealcube.minecraft.bukkit.shade.acf.BaseCommand;
 import com.tealcube.minecraft.bukkit.shade.acf.annotation.CommandAlias;
 import com.tealcube.minecraft.bukkit.shade.acf.annotation.CommandCompletion;
 import com.tealcube.minecraft.bukkit.shade.acf.annotation.CommandPermission;
+import com.tealcube.minecraft.bukkit.shade.acf.annotation.Default;
 import com.tealcube.minecraft.bukkit.shade.acf.annotation.Subcommand;
 import com.tealcube.minecraft.bukkit.shade.acf.bukkit.contexts.OnlinePlayer;
+import info.faceland.mint.metrics.CallerProfiler;
 import info.faceland.mint.util.MintUtil;
+import java.util.List;
+import java.util.UUID;
 import net.milkbowl.vault.economy.EconomyResponse;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -35,10 +39,14 @@ import org.bukkit.World;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.nunnerycode.mint.MintPlugin;
+import org.nunnerycode.mint.accounts.Leaderboard;
+import org.nunnerycode.mint.accounts.Money;
 
 @CommandAlias("mint|bullion")
 public class MintCommand extends BaseCommand {
 
+  private static final int TOP_PAGE_SIZE = 10;
+
   private final MintPlugin plugin;
 
   public MintCommand(MintPlugin plugin) {
@@ -53,6 +61,67 @@ public class MintCommand extends BaseCommand {
     commandSender.sendMessage(PaletteUtil.color("&aMINT RELOADED!"));
   }
 
+  @Subcommand("top")
+  @CommandCompletion("@range:1-10")
+  @CommandPermission("mint.top")
+  public void topSubcommand(CommandSender sender, @Default("1") int page) {
+    List<Leaderboard.Entry> entries = plugin.getManager().getLeaderboard()
+        .top((Math.max(1, page) - 1) * TOP_PAGE_SIZE, TOP_PAGE_SIZE);
+    if (entries.isEmpty()) {
+      sendMessage(sender, plugin.getSettings().getString("language.top-empty", ""));
+      return;
+    }
+    sendMessage(sender, plugin.getSettings().getString("language.top-header", "")
+        .replace("%page%", Integer.toString(Math.max(1, page))));
+    for (Leaderboard.Entry entry : entries) {
+      sendMessage(sender, plugin.getSettings().getString("language.top-entry", "")
+          .replace("%rank%", Integer.toString(entry.getRank()))
+          .replace("%player%", plugin.getEconomy().getUuidResolver().name(entry.getOwner()))
+          .replace("%currency%", plugin.getEconomy().format(Money.toMajor(entry.getBalance()))));
+    }
+  }
+
+  @Subcommand("stats")
+  @CommandPermission("mint.stats")
+  public void statsSubcommand(CommandSender sender) {
+    for (String line : plugin.getMetrics().report()) {
+      sendMessage(sender, line);
+    }
+  }
+
+  @Subcommand("stats reset")
+  @CommandPermission("mint.stats")
+  public void statsResetSubcommand(CommandSender sender) {
+    plugin.getMetrics().reset();
+    sendMessage(sender, "&aBullion metrics reset");
+  }
+
+  @Subcommand("stats callers")
+  @CommandPermission("mint.stats")
+  public void statsCallersSubcommand(CommandSender sender) {
+    CallerProfiler profiler = plugin.getEconomy().getCallerProfiler();
+    if (profiler == null) {
+      sendMessage(sender, "&eCaller profiling is off, start it with /mint stats profile <sample-rate>");
+      return;
+    }
+    for (String line : profiler.report()) {
+      sendMessage(sender, line);
+    }
+  }
+
+  @Subcommand("stats profile")
+  @CommandCompletion("64|0")
+  @CommandPermission("mint.stats")
+  public void statsProfileSubcommand(CommandSender sender, int sampleRate) {
+    if (sampleRate <= 0) {
+      plugin.getEconomy().setCallerProfiler(null);
+      sendMessage(sender, "&aCaller profiling stopped");
+      return;
+    }
+    plugin.getEconomy().setCallerProfiler(new CallerProfiler(sampleRate));
+    sendMessage(sender, "&aProfiling 1 in " + sampleRate + " economy calls by caller");
+  }
+
   @Subcommand("bank")
   public class BankCommand extends BaseCommand {
 
@@ -96,195 +165,70 @@ public class MintCommand extends BaseCommand {
     @CommandCompletion("@range:1-100")
     @CommandPermission("mint.bank.deposit")
     public void bankDeposit(Player player, double amount) {
-      EconomyResponse response = plugin.getEconomy().bankBalance(player.getUniqueId().toString());
-      if (!response.transactionSuccess()) {
-        response = plugin.getEconomy()
-            .createBank(player.getUniqueId().toString(), player.getUniqueId().toString());
-        if (response.transactionSuccess()) {
-          sendMessage(player, plugin.getSettings().getString(
-              "language.bank-create-success", "").replaceAll("%player%", player.getName()));
-          return;
-        }
-      }
-      if (amount < 0) {
-        if (plugin.getEconomy()
-            .bankDeposit(player.getUniqueId().toString(), plugin.getEconomy().getBalance(
-                player.getUniqueId().toString())).transactionSuccess()) {
-          if (plugin.getEconomy()
-              .withdrawPlayer(player.getUniqueId().toString(), plugin.getEconomy().getBalance(
-                  player.getUniqueId().toString())).transactionSuccess()) {
-            sendMessage(player, plugin.getSettings().getString(
-                "language.bank-deposit-success", "").replaceAll("%currency%", "EVERYTHING"));
-            sendMessage(player, plugin.getSettings().getString(
-                "language.bank-balance", "").replaceAll("%currency%", plugin.getEconomy().format(plugin.getEconomy()
-                .bankBalance(player.getUniqueId().toString()).balance)));
-            return;
-          }
-        }
-        sendMessage(player, plugin.getSettings().getString("language.bank-deposit-failure", ""));
-        return;
-      }
-      if (!plugin.getEconomy().has(player.getUniqueId().toString(), amount)) {
-        sendMessage(player, plugin.getSettings().getString("language.bank-deposit-failure", ""));
-        return;
-      }
-      if (plugin.getEconomy().bankDeposit(player.getUniqueId().toString(), amount)
-          .transactionSuccess()) {
-        if (plugin.getEconomy().withdrawPlayer(player.getUniqueId().toString(), amount)
-            .transactionSuccess()) {
-          sendMessage(player, plugin.getSettings().getString(
-              "language.bank-deposit-success", "").replaceAll("%currency%", plugin.getEconomy().format(amount)));
-          sendMessage(player, plugin.getSettings().getString("language.bank-balance", "")
-              .replaceAll("%currency%", plugin.getEconomy().format(plugin.getEconomy()
-                  .bankBalance(player.getUniqueId().toString()).balance)));
-          return;
-        }
-      }
-      sendMessage(player, plugin.getSettings().getString("language.bank-deposit-failure", ""));
+      deposit(player, amount);
     }
 
     @Subcommand("force-deposit")
     @CommandCompletion("@players @range:1-100")
     @CommandPermission("mint.bank.deposit")
     public void bankDeposit(CommandSender sender, OnlinePlayer target, double amount) {
-      Player player = target.getPlayer();
-      EconomyResponse response = plugin.getEconomy().bankBalance(player.getUniqueId().toString());
-      if (!response.transactionSuccess()) {
-        response = plugin.getEconomy()
-            .createBank(player.getUniqueId().toString(), player.getUniqueId().toString());
-        if (response.transactionSuccess()) {
-          sendMessage(player, plugin.getSettings().getString(
-              "language.bank-create-success", "").replaceAll("%player%", player.getName()));
-          return;
-        }
-      }
-      if (amount < 0) {
-        if (plugin.getEconomy()
-            .bankDeposit(player.getUniqueId().toString(), plugin.getEconomy().getBalance(
-                player.getUniqueId().toString())).transactionSuccess()) {
-          if (plugin.getEconomy()
-              .withdrawPlayer(player.getUniqueId().toString(), plugin.getEconomy().getBalance(
-                  player.getUniqueId().toString())).transactionSuccess()) {
-            sendMessage(player, plugin.getSettings().getString(
-                "language.bank-deposit-success", "").replaceAll("%currency%", "EVERYTHING"));
-            sendMessage(player, plugin.getSettings().getString(
-                "language.bank-balance", "").replaceAll("%currency%", plugin.getEconomy().format(plugin.getEconomy()
-                .bankBalance(player.getUniqueId().toString()).balance)));
-            return;
-          }
-        }
-        sendMessage(player, plugin.getSettings().getString("language.bank-deposit-failure", ""));
-        return;
-      }
-      if (!plugin.getEconomy().has(player.getUniqueId().toString(), amount)) {
-        sendMessage(player, plugin.getSettings().getString("language.bank-deposit-failure", ""));
-        return;
-      }
-      if (plugin.getEconomy().bankDeposit(player.getUniqueId().toString(), amount)
-          .transactionSuccess()) {
-        if (plugin.getEconomy().withdrawPlayer(player.getUniqueId().toString(), amount)
-            .transactionSuccess()) {
-          sendMessage(player, plugin.getSettings().getString(
-              "language.bank-deposit-success", "").replaceAll("%currency%", plugin.getEconomy().format(amount)));
-          sendMessage(player, plugin.getSettings().getString("language.bank-balance", "")
-              .replaceAll("%currency%", plugin.getEconomy().format(plugin.getEconomy()
-                  .bankBalance(player.getUniqueId().toString()).balance)));
-          return;
-        }
-      }
-      sendMessage(player, plugin.getSettings().getString("language.bank-deposit-failure", ""));
+      deposit(target.getPlayer(), amount);
     }
 
     @Subcommand("withdraw")
     @CommandCompletion("@range:1-100")
     @CommandPermission("mint.bank.withdraw")
     public void bankWithdraw(Player p, double amount) {
-      Player player = p.getPlayer();
-      EconomyResponse response = plugin.getEconomy().bankBalance(player.getUniqueId().toString());
-      if (!response.transactionSuccess()) {
-        sendMessage(player, plugin.getSettings().getString("language.bank-no-account", ""));
-        return;
-      }
-      if (amount < 0) {
-        if (plugin.getEconomy()
-            .depositPlayer(player.getUniqueId().toString(), plugin.getEconomy().bankBalance(
-                player.getUniqueId().toString()).balance).transactionSuccess()) {
-          if (plugin.getEconomy()
-              .bankWithdraw(player.getUniqueId().toString(), plugin.getEconomy().bankBalance(
-                  player.getUniqueId().toString()).balance).transactionSuccess()) {
-            sendMessage(player, plugin.getSettings().getString("language.bank-withdraw-success", "")
-                .replaceAll("%currency%", "EVERYTHING"));
-            sendMessage(player, plugin.getSettings().getString("language.bank-balance", "")
-                .replaceAll("%currency%", plugin.getEconomy().format(plugin.getEconomy()
-                    .bankBalance(player.getUniqueId().toString()).balance)));
-            return;
-          }
-        }
-        sendMessage(player, plugin.getSettings().getString("language.bank-withdraw-failure", ""));
-        return;
-      }
-      if (!plugin.getEconomy().bankHas(player.getUniqueId().toString(), amount)
-          .transactionSuccess()) {
-        sendMessage(player, plugin.getSettings().getString("language.bank-withdraw-failure", ""));
-        return;
-      }
-      if (plugin.getEconomy().bankWithdraw(player.getUniqueId().toString(), amount)
-          .transactionSuccess() && plugin
-          .getEconomy().depositPlayer(player.getUniqueId().toString(), amount).transactionSuccess()) {
-        sendMessage(player, plugin.getSettings().getString("language.bank-withdraw-success", "")
-            .replaceAll("%currency%", plugin.getEconomy().format(amount)));
-        sendMessage(player, plugin.getSettings().getString("language.bank-balance", "")
-            .replaceAll("%currency%", plugin.getEconomy().format(plugin.getEconomy()
-                .bankBalance(player.getUniqueId().toString()).balance)));
-        return;
-      }
-      sendMessage(player, plugin.getSettings().getString("language.bank-withdraw-failure", ""));
+      withdraw(p.getPlayer(), amount);
     }
 
     @Subcommand("force-withdraw")
     @CommandCompletion("@players @range:1-100")
     @CommandPermission("mint.bank.withdraw")
     public void bankWithdraw(CommandSender sender, OnlinePlayer target, double amount) {
-      Player player = target.getPlayer();
-      EconomyResponse response = plugin.getEconomy().bankBalance(player.getUniqueId().toString());
+      withdraw(target.getPlayer(), amount);
+    }
+
+    private void deposit(Player player, double amount) {
+      UUID uuid = player.getUniqueId();
+      EconomyResponse response = plugin.getEconomy().bankBalance(uuid.toString());
       if (!response.transactionSuccess()) {
-        sendMessage(player, plugin.getSettings().getString("language.bank-no-account", ""));
-        return;
-      }
-      if (amount < 0) {
-        if (plugin.getEconomy()
-            .depositPlayer(player.getUniqueId().toString(), plugin.getEconomy().bankBalance(
-                player.getUniqueId().toString()).balance).transactionSuccess()) {
-          if (plugin.getEconomy()
-              .bankWithdraw(player.getUniqueId().toString(), plugin.getEconomy().bankBalance(
-                  player.getUniqueId().toString()).balance).transactionSuccess()) {
-            sendMessage(player, plugin.getSettings().getString("language.bank-withdraw-success", "")
-                .replaceAll("%currency%", "EVERYTHING"));
-            sendMessage(player, plugin.getSettings().getString("language.bank-balance", "")
-                .replaceAll("%currency%", plugin.getEconomy().format(plugin.getEconomy()
-                    .bankBalance(player.getUniqueId().toString()).balance)));
-            return;
-          }
+        response = plugin.getEconomy().createBank(uuid.toString(), uuid.toString());
+        if (response.transactionSuccess()) {
+          sendMessage(player, plugin.getSettings().getString(
+              "language.bank-create-success", "").replaceAll("%player%", player.getName()));
+          return;
         }
-        sendMessage(player, plugin.getSettings().getString("language.bank-withdraw-failure", ""));
+      }
+      double toMove = amount < 0 ? plugin.getEconomy().getBalance(player) : amount;
+      if (!plugin.getEconomy().transfer(uuid, false, uuid, true, toMove).transactionSuccess()) {
+        sendMessage(player, plugin.getSettings().getString("language.bank-deposit-failure", ""));
         return;
       }
-      if (!plugin.getEconomy().bankHas(player.getUniqueId().toString(), amount)
-          .transactionSuccess()) {
-        sendMessage(player, plugin.getSettings().getString("language.bank-withdraw-failure", ""));
+      sendMessage(player, plugin.getSettings().getString("language.bank-deposit-success", "")
+          .replaceAll("%currency%", amount < 0 ? "EVERYTHING" : plugin.getEconomy().format(amount)));
+      sendMessage(player, plugin.getSettings().getString("language.bank-balance", "")
+          .replaceAll("%currency%", plugin.getEconomy().format(plugin.getEconomy()
+              .bankBalance(uuid.toString()).balance)));
+    }
+
+    private void withdraw(Player player, double amount) {
+      UUID uuid = player.getUniqueId();
+      EconomyResponse response = plugin.getEconomy().bankBalance(uuid.toString());
+      if (!response.transactionSuccess()) {
+        sendMessage(player, plugin.getSettings().getString("language.bank-no-account", ""));
         return;
       }
-      if (plugin.getEconomy().bankWithdraw(player.getUniqueId().toString(), amount)
-          .transactionSuccess() && plugin
-          .getEconomy().depositPlayer(player.getUniqueId().toString(), amount).transactionSuccess()) {
-        sendMessage(player, plugin.getSettings().getString("language.bank-withdraw-success", "")
-            .replaceAll("%currency%", plugin.getEconomy().format(amount)));
-        sendMessage(player, plugin.getSettings().getString("language.bank-balance", "")
-            .replaceAll("%currency%", plugin.getEconomy().format(plugin.getEconomy()
-                .bankBalance(player.getUniqueId().toString()).balance)));
+      double toMove = amount < 0 ? response.balance : amount;
+      if (!plugin.getEconomy().transfer(uuid, true, uuid, false, toMove).transactionSuccess()) {
+        sendMessage(player, plugin.getSettings().getString("language.bank-withdraw-failure", ""));
         return;
       }
-      sendMessage(player, plugin.getSettings().getString("language.bank-withdraw-failure", ""));
+      sendMessage(player, plugin.getSettings().getString("language.bank-withdraw-success", "")
+          .replaceAll("%currency%", amount < 0 ? "EVERYTHING" : plugin.getEconomy().format(amount)));
+      sendMessage(player, plugin.getSettings().getString("language.bank-balance", "")
+          .replaceAll("%currency%", plugin.getEconomy().format(plugin.getEconomy()
+              .bankBalance(uuid.toString()).balance)));
     }
   }
 
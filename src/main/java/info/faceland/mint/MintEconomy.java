@@ -18,7 +18,15 @@
  */
 package info.faceland.mint;
 
+import com.tealcube.minecraft.bukkit.bullion.ImmediateMoneyChangeEvent;
 import com.tealcube.minecraft.bukkit.bullion.MoneyChangeEvent;
+import com.tealcube.minecraft.bukkit.bullion.MoneyTransferEvent;
+import info.faceland.mint.listeners.MoneyEventCoalescer;
+import info.faceland.mint.metrics.CallerProfiler;
+import info.faceland.mint.metrics.CallerProfiler.Sample;
+import info.faceland.mint.metrics.MintMetrics.Counter;
+import info.faceland.mint.metrics.MintMetrics.Timer;
+import info.faceland.mint.util.UuidResolver;
 import io.pixeloutlaw.minecraft.spigot.garbage.StringExtensionsKt;
 import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.economy.EconomyResponse;
@@ -26,24 +34,40 @@ import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.OfflinePlayer;
 import org.nunnerycode.mint.MintPlugin;
+import org.nunnerycode.mint.accounts.BalanceChange;
+import org.nunnerycode.mint.accounts.Money;
+import org.nunnerycode.mint.accounts.Transfer;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
 public class MintEconomy implements Economy {
 
-  private static final DecimalFormat DF = new DecimalFormat("###,###,###");
+  private static final ThreadLocal<DecimalFormat> DF =
+      ThreadLocal.withInitial(() -> new DecimalFormat("###,###,###"));
+  private static final String OUT_OF_RANGE = "Amount out of range";
   private final String currencyPlural;
   private final String currencySingular;
   private final MintPlugin plugin;
+  private final UuidResolver uuidResolver = new UuidResolver();
+  private volatile MoneyEventCoalescer eventCoalescer;
+  private volatile CallerProfiler callerProfiler;
 
   public MintEconomy(MintPlugin plugin) {
+    this(plugin,
+        StringExtensionsKt.chatColorize(
+            plugin.getSettings().getString("config.currency-singular", ChatColor.YELLOW + "◎")),
+        StringExtensionsKt.chatColorize(
+            plugin.getSettings().getString("config.currency-plural", ChatColor.YELLOW + "◎")));
+  }
+
+  public MintEconomy(MintPlugin plugin, String currencySingular, String currencyPlural) {
     this.plugin = plugin;
-    currencyPlural = StringExtensionsKt.chatColorize(
-        plugin.getSettings().getString("config.currency-plural", ChatColor.YELLOW + "◎"));
-    currencySingular = StringExtensionsKt.chatColorize(
-        plugin.getSettings().getString("config.currency-singular", ChatColor.YELLOW + "◎"));
+    this.currencySingular = currencySingular;
+    this.currencyPlural = currencyPlural;
   }
 
   @Override
@@ -51,6 +75,30 @@ public class MintEconomy implements Economy {
     return true;
   }
 
+  public UuidResolver getUuidResolver() {
+    return uuidResolver;
+  }
+
+  /**
+   * Fires MoneyChangeEvents through the given coalescer, once per player per tick, instead of
+   * for every change. Every change is then reported by an ImmediateMoneyChangeEvent instead.
+   */
+  public void setEventCoalescer(MoneyEventCoalescer eventCoalescer) {
+    this.eventCoalescer = eventCoalescer;
+  }
+
+  public CallerProfiler getCallerProfiler() {
+    return callerProfiler;
+  }
+
+  /**
+   * Starts attributing calls to the plugins making them, or stops when {@code callerProfiler} is
+   * null.
+   */
+  public void setCallerProfiler(CallerProfiler callerProfiler) {
+    this.callerProfiler = callerProfiler;
+  }
+
   @Override
   public String getName() {
     return "Mint";
@@ -69,9 +117,9 @@ public class MintEconomy implements Economy {
   @Override
   public String format(double v) {
     if (Math.floor(v) == 1.00D) {
-      return String.format("%s%s", DF.format(v), currencyNameSingular());
+      return DF.get().format(v) + currencyNameSingular();
     }
-    return String.format("%s%s", DF.format(v), currencyNamePlural());
+    return DF.get().format(v) + currencyNamePlural();
   }
 
   @Override
@@ -87,19 +135,12 @@ public class MintEconomy implements Economy {
   @Override
   public boolean hasAccount(String s) {
     // logger.debug("hasAccount({})", s);
-    UUID uuid;
-    try {
-      uuid = UUID.fromString(s);
-    } catch (IllegalArgumentException e) {
-      uuid = Bukkit.getOfflinePlayer(s).getUniqueId();
-    }
-    return plugin.getManager().hasPlayerAccount(uuid) ||
-        createPlayerAccount(s);
+    return hasAccount(uuidResolver.resolve(s));
   }
 
   @Override
   public boolean hasAccount(OfflinePlayer player) {
-    return hasAccount(player.getUniqueId().toString());
+    return hasAccount(player.getUniqueId());
   }
 
   @Override
@@ -114,21 +155,12 @@ public class MintEconomy implements Economy {
 
   @Override
   public double getBalance(String s) {
-    if (!hasAccount(s)) {
-      return 0;
-    }
-    UUID uuid;
-    try {
-      uuid = UUID.fromString(s);
-    } catch (IllegalArgumentException e) {
-      uuid = Bukkit.getOfflinePlayer(s).getUniqueId();
-    }
-    return (double) Math.round(plugin.getManager().getPlayerBalance(uuid) * 100) / 100;
+    return getBalance(uuidResolver.resolve(s));
   }
 
   @Override
   public double getBalance(OfflinePlayer player) {
-    return getBalance(player.getUniqueId().toString());
+    return getBalance(player.getUniqueId());
   }
 
   @Override
@@ -144,12 +176,12 @@ public class MintEconomy implements Economy {
   @Override
   public boolean has(String s, double v) {
     // logger.debug("has({}, {})", s, v);
-    return hasAccount(s) && getBalance(s) >= v;
+    return has(uuidResolver.resolve(s), v);
   }
 
   @Override
   public boolean has(OfflinePlayer player, double amount) {
-    return has(player.getUniqueId().toString(), amount);
+    return has(player.getUniqueId(), amount);
   }
 
   @Override
@@ -165,30 +197,12 @@ public class MintEconomy implements Economy {
   @Override
   public EconomyResponse withdrawPlayer(String s, double v) {
     // logger.debug("withdrawPlayer({}, {})", s, v);
-    if (!hasAccount(s)) {
-      createPlayerAccount(s);
-    }
-    UUID uuid;
-    try {
-      uuid = UUID.fromString(s);
-    } catch (IllegalArgumentException e) {
-      uuid = Bukkit.getOfflinePlayer(s).getUniqueId();
-    }
-    double balance = plugin.getManager().getPlayerBalance(uuid);
-    if (!has(s, v)) {
-      return new EconomyResponse(v, balance, EconomyResponse.ResponseType.FAILURE, null);
-    }
-    double newBalance = balance - Math.abs(v);
-    plugin.getManager().setPlayerBalance(uuid, newBalance);
-    EconomyResponse response =
-        new EconomyResponse(v, newBalance, EconomyResponse.ResponseType.SUCCESS, null);
-    Bukkit.getPluginManager().callEvent(new MoneyChangeEvent(uuid, balance, newBalance));
-    return response;
+    return withdrawPlayer(uuidResolver.resolve(s), v);
   }
 
   @Override
   public EconomyResponse withdrawPlayer(OfflinePlayer player, double amount) {
-    return withdrawPlayer(player.getUniqueId().toString(), amount);
+    return withdrawPlayer(player.getUniqueId(), amount);
   }
 
   @Override
@@ -201,30 +215,47 @@ public class MintEconomy implements Economy {
     return withdrawPlayer(player, amount);
   }
 
-  @Override
-  public EconomyResponse depositPlayer(String s, double v) {
-    // logger.debug("depositPlayer({}, {})", s, v);
-    if (!hasAccount(s)) {
-      createPlayerAccount(s);
+  private EconomyResponse withdrawPlayer(UUID uuid, double v) {
+    Sample sample = sample();
+    long start = System.nanoTime();
+    try {
+      return withdraw(uuid, v);
+    } finally {
+      record(Timer.WITHDRAW, start, sample);
     }
-    UUID uuid;
+  }
+
+  private EconomyResponse withdraw(UUID uuid, double v) {
+    createPlayerAccount(uuid);
+    long amount;
+    long balance;
     try {
-      uuid = UUID.fromString(s);
-    } catch (IllegalArgumentException e) {
-      uuid = Bukkit.getOfflinePlayer(s).getUniqueId();
+      amount = Money.toMinor(Math.abs(v));
+      balance = plugin.getManager().addPlayerBalance(uuid, -amount, 0L);
+    } catch (ArithmeticException e) {
+      return new EconomyResponse(v, 0D, EconomyResponse.ResponseType.FAILURE, OUT_OF_RANGE);
     }
-    double balance = plugin.getManager().getPlayerBalance(uuid);
-    double newBalance = balance + Math.abs(v);
-    plugin.getManager().setPlayerBalance(uuid, newBalance);
-    EconomyResponse response = new EconomyResponse(v, balance + Math.abs(v),
-        EconomyResponse.ResponseType.SUCCESS, null);
-    Bukkit.getPluginManager().callEvent(new MoneyChangeEvent(uuid, balance, newBalance));
+    if (balance - amount < 0L) {
+      return new EconomyResponse(v, Money.toMajor(balance), EconomyResponse.ResponseType.FAILURE,
+          null);
+    }
+    double oldBalance = Money.toMajor(balance);
+    double newBalance = Money.toMajor(balance - amount);
+    EconomyResponse response =
+        new EconomyResponse(v, newBalance, EconomyResponse.ResponseType.SUCCESS, null);
+    fireMoneyChange(uuid, oldBalance, newBalance);
     return response;
   }
 
+  @Override
+  public EconomyResponse depositPlayer(String s, double v) {
+    // logger.debug("depositPlayer({}, {})", s, v);
+    return depositPlayer(uuidResolver.resolve(s), v);
+  }
+
   @Override
   public EconomyResponse depositPlayer(OfflinePlayer player, double amount) {
-    return depositPlayer(player.getUniqueId().toString(), amount);
+    return depositPlayer(player.getUniqueId(), amount);
   }
 
   @Override
@@ -237,16 +268,39 @@ public class MintEconomy implements Economy {
     return depositPlayer(player, amount);
   }
 
-  @Override
-  public EconomyResponse createBank(String s, String s2) {
-    UUID uuid;
+  private EconomyResponse depositPlayer(UUID uuid, double v) {
+    Sample sample = sample();
+    long start = System.nanoTime();
+    try {
+      return deposit(uuid, v);
+    } finally {
+      record(Timer.DEPOSIT, start, sample);
+    }
+  }
+
+  private EconomyResponse deposit(UUID uuid, double v) {
+    createPlayerAccount(uuid);
+    long amount;
+    long balance;
     try {
-      uuid = UUID.fromString(s);
-    } catch (IllegalArgumentException e) {
-      uuid = Bukkit.getOfflinePlayer(s).getUniqueId();
+      amount = Money.toMinor(Math.abs(v));
+      balance = plugin.getManager().addPlayerBalance(uuid, amount, 0L);
+    } catch (ArithmeticException e) {
+      return new EconomyResponse(v, 0D, EconomyResponse.ResponseType.FAILURE, OUT_OF_RANGE);
     }
-    plugin.getManager().setBankBalance(uuid, 0D);
-    return new EconomyResponse(0D, plugin.getManager().getBankBalance(uuid),
+    double oldBalance = Money.toMajor(balance);
+    double newBalance = Money.toMajor(balance + amount);
+    EconomyResponse response = new EconomyResponse(v, newBalance,
+        EconomyResponse.ResponseType.SUCCESS, null);
+    fireMoneyChange(uuid, oldBalance, newBalance);
+    return response;
+  }
+
+  @Override
+  public EconomyResponse createBank(String s, String s2) {
+    UUID uuid = uuidResolver.resolve(s);
+    plugin.getManager().setBankBalance(uuid, 0L);
+    return new EconomyResponse(0D, Money.toMajor(plugin.getManager().getBankBalance(uuid)),
         EconomyResponse.ResponseType.SUCCESS, null);
   }
 
@@ -257,23 +311,13 @@ public class MintEconomy implements Economy {
 
   @Override
   public EconomyResponse deleteBank(String s) {
-    plugin.getManager().removeBankAccount(UUID.fromString(s));
+    plugin.getManager().removeBankAccount(uuidResolver.resolve(s));
     return new EconomyResponse(0D, 0D, EconomyResponse.ResponseType.SUCCESS, null);
   }
 
   @Override
   public EconomyResponse bankBalance(String s) {
-    UUID uuid;
-    try {
-      uuid = UUID.fromString(s);
-    } catch (IllegalArgumentException e) {
-      uuid = Bukkit.getOfflinePlayer(s).getUniqueId();
-    }
-    if (plugin.getManager().hasBankAccount(uuid)) {
-      double balance = plugin.getManager().getBankBalance(uuid);
-      return new EconomyResponse(balance, balance, EconomyResponse.ResponseType.SUCCESS, null);
-    }
-    return new EconomyResponse(0D, 0D, EconomyResponse.ResponseType.FAILURE, null);
+    return bankBalance(uuidResolver.resolve(s));
   }
 
   @Override
@@ -291,36 +335,58 @@ public class MintEconomy implements Economy {
 
   @Override
   public EconomyResponse bankWithdraw(String s, double v) {
-    EconomyResponse response = bankBalance(s);
-    UUID uuid;
+    Sample sample = sample();
+    long start = System.nanoTime();
     try {
-      uuid = UUID.fromString(s);
-    } catch (IllegalArgumentException e) {
-      uuid = Bukkit.getOfflinePlayer(s).getUniqueId();
+      return withdrawBank(uuidResolver.resolve(s), v);
+    } finally {
+      record(Timer.BANK, start, sample);
     }
-    double balance = plugin.getManager().getBankBalance(uuid);
-    if (response.transactionSuccess()) {
-      plugin.getManager().setBankBalance(uuid, balance - Math.abs(v));
-      return new EconomyResponse(v, balance - Math.abs(v), EconomyResponse.ResponseType.SUCCESS,
-          null);
+  }
+
+  private EconomyResponse withdrawBank(UUID uuid, double v) {
+    if (plugin.getManager().hasBankAccount(uuid)) {
+      long amount;
+      long balance;
+      try {
+        amount = Money.toMinor(Math.abs(v));
+        balance = plugin.getManager().addBankBalance(uuid, -amount, 0L);
+      } catch (ArithmeticException e) {
+        return new EconomyResponse(0D, 0D, EconomyResponse.ResponseType.FAILURE, OUT_OF_RANGE);
+      }
+      if (balance - amount < 0L) {
+        return new EconomyResponse(0D, Money.toMajor(balance),
+            EconomyResponse.ResponseType.FAILURE, null);
+      }
+      return new EconomyResponse(v, Money.toMajor(balance - amount),
+          EconomyResponse.ResponseType.SUCCESS, null);
     }
     return new EconomyResponse(0D, 0D, EconomyResponse.ResponseType.FAILURE, null);
   }
 
   @Override
   public EconomyResponse bankDeposit(String s, double v) {
-    EconomyResponse response = bankBalance(s);
-    UUID uuid;
+    Sample sample = sample();
+    long start = System.nanoTime();
     try {
-      uuid = UUID.fromString(s);
-    } catch (IllegalArgumentException e) {
-      uuid = Bukkit.getOfflinePlayer(s).getUniqueId();
+      return depositBank(uuidResolver.resolve(s), v);
+    } finally {
+      record(Timer.BANK, start, sample);
     }
-    double balance = plugin.getManager().getBankBalance(uuid);
-    if (response.transactionSuccess()) {
-      plugin.getManager().setBankBalance(uuid, balance + Math.abs(v));
-      return new EconomyResponse(v, balance + Math.abs(v), EconomyResponse.ResponseType.SUCCESS,
-          null);
+  }
+
+  private EconomyResponse depositBank(UUID uuid, double v) {
+    if (plugin.getManager().hasBankAccount(uuid)) {
+      long amount;
+      long balance;
+      try {
+        amount = Money.toMinor(Math.abs(v));
+        balance = plugin.getManager().addBankBalance(uuid, amount, 0L);
+      } catch (ArithmeticException e) {
+        return new EconomyResponse(0D, 0D, EconomyResponse.ResponseType.FAILURE, OUT_OF_RANGE);
+      }
+      return new EconomyResponse(v, Money.toMajor(balance + amount),
+          EconomyResponse.ResponseType.SUCCESS, null);
     }
     return new EconomyResponse(0D, 0D, EconomyResponse.ResponseType.FAILURE, null);
   }
@@ -356,20 +422,12 @@ public class MintEconomy implements Economy {
   @Override
   public boolean createPlayerAccount(String s) {
     // logger.debug("createPlayerAccount({})", s);
-    UUID uuid;
-    try {
-      uuid = UUID.fromString(s);
-    } catch (IllegalArgumentException e) {
-      uuid = Bukkit.getOfflinePlayer(s).getUniqueId();
-    }
-    plugin.getManager().setPlayerBalance(uuid, 0D);
-    Bukkit.getPluginManager().callEvent(new MoneyChangeEvent(uuid, 0, 0));
-    return true;
+    return createPlayerAccount(uuidResolver.resolve(s));
   }
 
   @Override
   public boolean createPlayerAccount(OfflinePlayer player) {
-    return createPlayerAccount(player.getUniqueId().toString());
+    return createPlayerAccount(player.getUniqueId());
   }
 
   @Override
@@ -383,24 +441,192 @@ public class MintEconomy implements Economy {
   }
 
   public EconomyResponse setBalance(OfflinePlayer player, int v) {
-    return setBalance(player.getUniqueId().toString(), v);
+    return setBalance(player.getUniqueId(), v);
   }
 
   public EconomyResponse setBalance(String s, double v) {
     // logger.debug("setBalance({}, {})", s, v);
-    if (!hasAccount(s)) {
-      createPlayerAccount(s);
+    return setBalance(uuidResolver.resolve(s), v);
+  }
+
+  private EconomyResponse setBalance(UUID uuid, double v) {
+    Sample sample = sample();
+    long start = System.nanoTime();
+    try {
+      return set(uuid, v);
+    } finally {
+      record(Timer.SET_BALANCE, start, sample);
     }
-    UUID uuid;
+  }
+
+  private EconomyResponse set(UUID uuid, double v) {
+    createPlayerAccount(uuid);
+    long balance;
+    try {
+      balance = Money.toMinor(v);
+    } catch (ArithmeticException e) {
+      return new EconomyResponse(0D, 0D, EconomyResponse.ResponseType.FAILURE, OUT_OF_RANGE);
+    }
+    long previous;
+    do {
+      previous = plugin.getManager().getPlayerBalance(uuid);
+    } while (!plugin.getManager().compareAndSetPlayerBalance(uuid, previous, balance));
+    double d = Money.toMajor(previous);
+    double newBalance = Money.toMajor(balance);
+    fireMoneyChange(uuid, d, newBalance);
+    return new EconomyResponse(d - newBalance, newBalance, EconomyResponse.ResponseType.SUCCESS,
+        null);
+  }
+
+  public EconomyResponse transfer(UUID from, UUID to, double v) {
+    return transfer(from, false, to, false, v);
+  }
+
+  /**
+   * Moves money between two accounts in one step, so either both balances change or neither does.
+   * The response carries the new balance of the paying account.
+   */
+  public EconomyResponse transfer(UUID from, boolean fromBank, UUID to, boolean toBank, double v) {
+    long amount;
+    try {
+      amount = Money.toMinor(Math.abs(v));
+    } catch (ArithmeticException e) {
+      return new EconomyResponse(v, 0D, EconomyResponse.ResponseType.FAILURE, OUT_OF_RANGE);
+    }
+    if (amount != 0L) {
+      EconomyResponse response = transferAll(
+          Collections.singletonList(Transfer.of(from, fromBank, to, toBank, amount)));
+      if (!response.transactionSuccess()) {
+        return new EconomyResponse(v, balanceOf(from, fromBank),
+            EconomyResponse.ResponseType.FAILURE, response.errorMessage);
+      }
+    }
+    return new EconomyResponse(v, balanceOf(from, fromBank), EconomyResponse.ResponseType.SUCCESS,
+        null);
+  }
+
+  /**
+   * Applies every transfer or none of them. Fires a {@link MoneyChangeEvent} for every player
+   * account whose balance changed and then a single {@link MoneyTransferEvent} for the whole
+   * batch. Fails if a bank account involved does not exist or an account cannot cover what it
+   * sends.
+   */
+  public EconomyResponse transferAll(List<Transfer> transfers) {
+    Sample sample = sample();
+    long start = System.nanoTime();
     try {
-      uuid = UUID.fromString(s);
-    } catch (IllegalArgumentException e) {
-      uuid = Bukkit.getOfflinePlayer(s).getUniqueId();
+      return transferBatch(transfers);
+    } finally {
+      record(Timer.TRANSFER, start, sample);
+    }
+  }
+
+  private EconomyResponse transferBatch(List<Transfer> transfers) {
+    long total = 0L;
+    List<BalanceChange> playerChanges = new ArrayList<>();
+    boolean moved;
+    try {
+      for (Transfer transfer : transfers) {
+        total = Math.addExact(total, transfer.getAmount());
+      }
+      moved = plugin.getManager().transferAll(transfers, playerChanges);
+    } catch (ArithmeticException e) {
+      return new EconomyResponse(0D, 0D, EconomyResponse.ResponseType.FAILURE, OUT_OF_RANGE);
+    }
+    if (!moved) {
+      return new EconomyResponse(0D, 0D, EconomyResponse.ResponseType.FAILURE, null);
+    }
+    for (BalanceChange change : playerChanges) {
+      fireMoneyChange(change.getOwner(), Money.toMajor(change.getPrevious()),
+          Money.toMajor(change.getBalance()));
+    }
+    if (!transfers.isEmpty()) {
+      Bukkit.getPluginManager().callEvent(new MoneyTransferEvent(transfers));
+      plugin.getMetrics().increment(Counter.EVENTS_FIRED);
     }
-    double d = plugin.getManager().getPlayerBalance(uuid);
-    plugin.getManager().setPlayerBalance(uuid, v);
-    Bukkit.getPluginManager().callEvent(new MoneyChangeEvent(uuid, d, v));
-    return new EconomyResponse(d - v, v, EconomyResponse.ResponseType.SUCCESS, null);
+    return new EconomyResponse(Money.toMajor(total), 0D, EconomyResponse.ResponseType.SUCCESS,
+        null);
+  }
+
+  /*
+   * The UUID keyed paths below are what every public overload funnels into: the name is resolved
+   * once, a missing player account is created, announced by a 0 -> 0 MoneyChangeEvent, by the
+   * same manager call that checks for it, and a single further manager call does the work.
+   */
+
+  private boolean hasAccount(UUID uuid) {
+    return createPlayerAccount(uuid);
+  }
+
+  private double getBalance(UUID uuid) {
+    Sample sample = sample();
+    long start = System.nanoTime();
+    createPlayerAccount(uuid);
+    double balance = playerBalance(uuid);
+    record(Timer.GET_BALANCE, start, sample);
+    return balance;
+  }
+
+  private boolean has(UUID uuid, double v) {
+    Sample sample = sample();
+    long start = System.nanoTime();
+    createPlayerAccount(uuid);
+    boolean has = playerBalance(uuid) >= v;
+    record(Timer.HAS, start, sample);
+    return has;
+  }
+
+  private double playerBalance(UUID uuid) {
+    return Money.toMajor(plugin.getManager().getPlayerBalance(uuid));
+  }
+
+  private EconomyResponse bankBalance(UUID uuid) {
+    if (plugin.getManager().hasBankAccount(uuid)) {
+      double balance = Money.toMajor(plugin.getManager().getBankBalance(uuid));
+      return new EconomyResponse(balance, balance, EconomyResponse.ResponseType.SUCCESS, null);
+    }
+    return new EconomyResponse(0D, 0D, EconomyResponse.ResponseType.FAILURE, null);
+  }
+
+  private double balanceOf(UUID uuid, boolean bank) {
+    if (!bank) {
+      return playerBalance(uuid);
+    }
+    return bankBalance(uuid).balance;
+  }
+
+  private Sample sample() {
+    CallerProfiler profiler = callerProfiler;
+    return profiler == null ? null : profiler.sample();
+  }
+
+  private void record(Timer timer, long start, Sample sample) {
+    plugin.getMetrics().record(timer, start);
+    if (sample != null) {
+      sample.finish(timer, start);
+    }
+  }
+
+  private void fireMoneyChange(UUID uuid, double oldBalance, double newBalance) {
+    MoneyEventCoalescer coalescer = eventCoalescer;
+    if (coalescer == null) {
+      Bukkit.getPluginManager().callEvent(new MoneyChangeEvent(uuid, oldBalance, newBalance));
+      plugin.getMetrics().increment(Counter.EVENTS_FIRED);
+      return;
+    }
+    if (ImmediateMoneyChangeEvent.hasListeners()) {
+      Bukkit.getPluginManager()
+          .callEvent(new ImmediateMoneyChangeEvent(uuid, oldBalance, newBalance));
+      plugin.getMetrics().increment(Counter.EVENTS_FIRED);
+    }
+    coalescer.record(uuid, oldBalance, newBalance);
+  }
+
+  private boolean createPlayerAccount(UUID uuid) {
+    if (plugin.getManager().createPlayerAccount(uuid)) {
+      fireMoneyChange(uuid, 0, 0);
+    }
+    return true;
   }
 
 }
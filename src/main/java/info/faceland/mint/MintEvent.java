@@ -29,6 +29,14 @@ public class MintEvent extends Event {
 
     private static final HandlerList HANDLER_LIST = new HandlerList();
 
+    public MintEvent() {
+        super();
+    }
+
+    public MintEvent(boolean isAsync) {
+        super(isAsync);
+    }
+
     public static HandlerList getHandlerList() {
         return HANDLER_LIST;
     }
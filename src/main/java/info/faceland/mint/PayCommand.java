@@ -63,13 +63,8 @@ public class PayCommand extends BaseCommand {
         return;
       }
     }
-    if (!plugin.getEconomy().has(sender.getUniqueId().toString(), amount)) {
-      sendMessage(sender, plugin.getSettings().getString("language.pay-failure", ""));
-      return;
-    }
-    if (plugin.getEconomy().withdrawPlayer(sender.getUniqueId().toString(), amount)
-        .transactionSuccess() && plugin.getEconomy().depositPlayer(target.getUniqueId()
-            .toString(), amount).transactionSuccess()) {
+    if (plugin.getEconomy().transfer(sender.getUniqueId(), target.getUniqueId(), amount)
+        .transactionSuccess()) {
       sendMessage(sender, plugin.getSettings().getString("language.pay-success", "")
           .replaceAll("%player%", target.getDisplayName())
           .replaceAll("%currency%", plugin.getEconomy().format(Math.abs(amount))));
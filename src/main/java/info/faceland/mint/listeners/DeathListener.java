@@ -23,7 +23,11 @@ import com.tealcube.minecraft.bukkit.bullion.PlayerDeathDropEvent;
 import com.tealcube.minecraft.bukkit.facecore.utilities.FireworkUtil;
 import com.tealcube.minecraft.bukkit.facecore.utilities.PaletteUtil;
 import com.tealcube.minecraft.bukkit.shade.apache.commons.lang3.StringUtils;
+import info.faceland.mint.metrics.MintMetrics.Counter;
+import info.faceland.mint.metrics.MintMetrics.Timer;
 import info.faceland.mint.util.MintUtil;
+import info.faceland.mint.util.RewardTable;
+import info.faceland.mint.util.RewardTable.WorldRewards;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,7 +38,6 @@ import org.bukkit.ChatColor;
 import org.bukkit.Color;
 import org.bukkit.FireworkEffect.Type;
 import org.bukkit.Location;
-import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -52,6 +55,7 @@ public class DeathListener implements Listener {
   private final List<String> noLossWorlds;
   private final double doubleDropChance;
   private final String bitBombBroadcast;
+  private final RewardTable rewardTable;
 
   private final Map<Player, Double> bitsDropped = new WeakHashMap<>();
 
@@ -60,37 +64,42 @@ public class DeathListener implements Listener {
     noLossWorlds = plugin.getSettings().getStringList("config.no-loss-worlds");
     doubleDropChance = plugin.getSettings().getDouble("config.double-drop-chance", 0.05);
     bitBombBroadcast = PaletteUtil.color(plugin.getSettings().getString("language.bit-bomb-message"));
+    rewardTable = new RewardTable(plugin.getSettings(),
+        plugin.getConfigYAML().getConfigurationSection("money-drop-worlds"));
   }
 
   @EventHandler(priority = EventPriority.HIGHEST)
   public void onEntityDeathEvent(final EntityDeathEvent event) {
-    if (!validBitDropConditions(event)) {
+    if (event instanceof PlayerDeathEvent || event.getEntity().getKiller() == null) {
       return;
     }
-    EntityType entityType = event.getEntityType();
-    double reward = plugin.getSettings().getDouble("rewards." + entityType.name(), 0D);
+    long start = System.nanoTime();
+    dropReward(event);
+    plugin.getMetrics().record(Timer.ENTITY_DEATH, start);
+  }
 
-    if (reward == 0D) {
+  private void dropReward(EntityDeathEvent event) {
+    WorldRewards worldRewards = rewardTable.getWorldRewards(event.getEntity().getWorld());
+    if (!validBitDropConditions(event, worldRewards)) {
       return;
     }
+    double reward = rewardTable.getReward(event.getEntityType());
 
-    String world = event.getEntity().getWorld().getName();
+    if (reward == 0D) {
+      return;
+    }
 
-    double exponent = plugin.getSettings()
-        .getDouble("config.money-drop-worlds." + world + ".exponential-bonus", 1D);
+    double exponent = worldRewards.getExponentialBonus();
 
-    String style = plugin.getSettings().getString("config.money-drop-calculation", "distance");
-    if ("distance".equalsIgnoreCase(style)) {
-      double multPer100Blocks = plugin.getSettings()
-          .getDouble("config.money-drop-worlds." + world + ".multiplier-per-100-blocks", 0.0);
+    if (rewardTable.isDistanceCalculation()) {
+      double multPer100Blocks = worldRewards.getMultiplierPer100Blocks();
       Location worldSpawn = event.getEntity().getWorld().getSpawnLocation();
       Location entityLoc = event.getEntity().getLocation();
       double distance = worldSpawn.distance(entityLoc);
       double distMult = 1 + ((distance / 100) * multPer100Blocks);
       reward *= distMult;
     } else {
-      double multPer100Levels = plugin.getSettings()
-          .getDouble("config.money-drop-worlds." + world + ".multiplier-per-100-levels", 0.0);
+      double multPer100Levels = worldRewards.getMultiplierPer100Levels();
       float level = MintUtil.getMobLevel(event.getEntity());
       reward *= 1 + ((level / 100) * multPer100Levels);
     }
@@ -100,6 +109,7 @@ public class DeathListener implements Listener {
 
     GoldDropEvent gde = new GoldDropEvent(event.getEntity().getKiller(), event.getEntity(), reward);
     Bukkit.getPluginManager().callEvent(gde);
+    plugin.getMetrics().increment(Counter.EVENTS_FIRED);
 
     if (gde.isCancelled()) {
       return;
@@ -107,15 +117,15 @@ public class DeathListener implements Listener {
 
     reward = Math.max(1, gde.getAmount());
 
-    double bombChance = plugin.getSettings().getDouble("config.bit-bomb.chance", 0.002);
+    double bombChance = rewardTable.getBombChance();
     if (event.getEntity().getKiller().hasPotionEffect(PotionEffectType.LUCK)) {
-      bombChance = plugin.getSettings().getDouble("config.bit-bomb.lucky-chance", 0.004);
+      bombChance = rewardTable.getLuckyBombChance();
     }
 
     if (ThreadLocalRandom.current().nextDouble() <= bombChance) {
-      float velocity = (float) plugin.getSettings().getDouble("config.bit-bomb.velocity", 1);
-      int minDrops = plugin.getSettings().getInt("config.bit-bomb.min-drops", 12);
-      int maxDrops = plugin.getSettings().getInt("config.bit-bomb.max-drops", 30);
+      float velocity = rewardTable.getBombVelocity();
+      int minDrops = rewardTable.getBombMinDrops();
+      int maxDrops = rewardTable.getBombMaxDrops();
 
       int numberOfDrops = ThreadLocalRandom.current().nextInt(minDrops, maxDrops + 1);
       double bombTotal = 0;
@@ -153,6 +163,7 @@ public class DeathListener implements Listener {
 
     PlayerDeathDropEvent e = new PlayerDeathDropEvent(event.getEntity(), keptBits);
     Bukkit.getPluginManager().callEvent(e);
+    plugin.getMetrics().increment(Counter.EVENTS_FIRED);
 
     if (e.isCancelled()) {
       return;
@@ -182,23 +193,17 @@ public class DeathListener implements Listener {
     }, 52L);
   }
 
-  private boolean validBitDropConditions(EntityDeathEvent event) {
-    if (event instanceof PlayerDeathEvent || event.getEntity().getKiller() == null) {
-      return false;
-    }
+  private boolean validBitDropConditions(EntityDeathEvent event, WorldRewards worldRewards) {
     if (StringUtils.isBlank(event.getEntity().getCustomName())) {
       return false;
     }
     if (event.getEntity().getCustomName().startsWith(ChatColor.WHITE + "Spawned")) {
       return false;
     }
-    String dropWorld = event.getEntity().getWorld().getName();
-    if (!plugin.getSettings()
-        .getBoolean("config.money-drop-worlds." + dropWorld + ".enabled", false)) {
+    if (!worldRewards.isEnabled()) {
       return false;
     }
-    if (ThreadLocalRandom.current().nextDouble() > plugin.getSettings()
-        .getDouble("config.money-drop-worlds." + dropWorld + ".drop-chance", 1.0)) {
+    if (ThreadLocalRandom.current().nextDouble() > worldRewards.getDropChance()) {
       return false;
     }
     return true;
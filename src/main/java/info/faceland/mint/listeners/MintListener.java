@@ -21,12 +21,9 @@ package info.faceland.mint.listeners;
 import com.tealcube.minecraft.bukkit.facecore.FacecorePlugin;
 import com.tealcube.minecraft.bukkit.facecore.utilities.ChunkUtil;
 import com.tealcube.minecraft.bukkit.facecore.utilities.MessageUtils;
-import com.tealcube.minecraft.bukkit.shade.apache.commons.lang3.StringUtils;
-import info.faceland.mint.tasks.PickupTask;
+import info.faceland.mint.metrics.MintMetrics.Counter;
+import info.faceland.mint.metrics.MintMetrics.Timer;
 import info.faceland.mint.util.MintUtil;
-import io.pixeloutlaw.minecraft.spigot.hilt.ItemStackExtensionsKt;
-import java.util.List;
-import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Item;
@@ -35,7 +32,14 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.ItemDespawnEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLevelChangeEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
 import org.bukkit.event.world.EntitiesLoadEvent;
 import org.bukkit.inventory.ItemStack;
 import org.nunnerycode.mint.MintPlugin;
@@ -64,30 +68,15 @@ public class MintListener implements Listener {
     if (!plugin.getManager().isPlayerInPawnMap((Player) event.getPlayer())) {
       return;
     }
-    double value = 0;
+    long start = System.nanoTime();
+    ItemStack[] contents = event.getInventory().getContents();
+    double value = plugin.getPriceIndex().price(contents);
     int amountSold = 0;
 
-    for (ItemStack itemStack : event.getInventory().getContents()) {
-      if (itemStack.getType() == Material.AIR) {
-        continue;
+    for (ItemStack itemStack : contents) {
+      if (itemStack != null && itemStack.getType() != Material.AIR) {
+        amountSold += itemStack.getAmount();
       }
-      int stackSize = itemStack.getAmount();
-      List<String> lore = itemStack.getLore();
-      String name = ItemStackExtensionsKt.getDisplayName(itemStack);
-      name = StringUtils.isBlank(name) ? "" : ChatColor.stripColor(name);
-
-      if (name.startsWith("Socket Gem")) {
-        value = plugin.getSettings().getDouble("prices.special.gems");
-      } else if (plugin.getSettings().isSet("prices.names." + name)) {
-        value = plugin.getSettings().getDouble("prices.names." + name, 0D);
-      } else {
-        value = plugin.getSettings().getDouble("prices.materials." + itemStack.getType().name(), 0D);
-        if (!lore.isEmpty()) {
-          value += plugin.getSettings().getDouble("prices.options.lore.base-price", 3D);
-          value += plugin.getSettings().getDouble("prices.options.lore.per-line", 1D) * lore.size();
-        }
-      }
-      value *= stackSize;
     }
 
     if (value > 0) {
@@ -96,13 +85,58 @@ public class MintListener implements Listener {
           new String[][]{{"%amount%", "" + amountSold}, {"%currency%", plugin.getEconomy().format(value)}});
     }
     plugin.getManager().removePlayerFromPawnMap((Player) event.getPlayer());
+    plugin.getMetrics().record(Timer.PAWN_CLOSE, start);
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onItemDespawn(ItemDespawnEvent event) {
+    if (MintUtil.isCashDrop(event.getEntity())) {
+      plugin.getMetrics().increment(Counter.DROPS_EXPIRED);
+    }
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+    if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+      plugin.getManager().pinAccount(event.getUniqueId());
+      plugin.getEconomy().getUuidResolver().remember(event.getName(), event.getUniqueId());
+    }
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onLogin(PlayerLoginEvent event) {
+    if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+      plugin.getManager().unpinAccount(event.getPlayer().getUniqueId());
+    }
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onQuit(PlayerQuitEvent event) {
+    plugin.getManager().unpinAccount(event.getPlayer().getUniqueId());
+    MintUtil.removeProtectedCash(event.getPlayer());
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onJoin(PlayerJoinEvent event) {
+    MintUtil.invalidateProtectedCash(event.getPlayer());
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onLevelChange(PlayerLevelChangeEvent event) {
+    MintUtil.invalidateProtectedCash(event.getPlayer());
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onRespawn(PlayerRespawnEvent event) {
+    MintUtil.invalidateProtectedCash(event.getPlayer());
   }
 
   @EventHandler(priority = EventPriority.LOWEST)
   public void onChunkLoad(final EntitiesLoadEvent event) {
     for (Entity e : event.getEntities()) {
       if (e.getPersistentDataContainer().has(MintPlugin.moneyKey)) {
-        new PickupTask((Item) e);
+        MintUtil.restoreDropProtection((Item) e);
+        plugin.getPickupEngine().track((Item) e);
       }
     }
   }
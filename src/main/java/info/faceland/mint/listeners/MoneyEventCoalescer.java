@@ -0,0 +1,76 @@
+/**
+ * The MIT License Copyright (c) 2015 Teal Cube Games
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package info.faceland.mint.listeners;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import com.tealcube.minecraft.bukkit.bullion.MoneyChangeEvent;
+import info.faceland.mint.metrics.MintMetrics;
+import info.faceland.mint.metrics.MintMetrics.Counter;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+/**
+ * Collects balance changes during a tick and fires a single {@link MoneyChangeEvent} per player
+ * when the tick ends, going from the balance before the first change to the balance after the
+ * last one.
+ */
+public class MoneyEventCoalescer implements Listener {
+
+  private final Map<UUID, double[]> pending = new ConcurrentHashMap<>();
+  private final MintMetrics metrics;
+
+  public MoneyEventCoalescer(MintMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public void record(UUID uuid, double oldValue, double newValue) {
+    pending.compute(uuid, (key, values) -> {
+      if (values == null) {
+        return new double[]{oldValue, newValue};
+      }
+      values[1] = newValue;
+      return values;
+    });
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onTickEnd(ServerTickEndEvent event) {
+    flush();
+  }
+
+  /**
+   * Fires the events collected so far. Changes recorded while this runs are left for the next
+   * flush.
+   */
+  public void flush() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    for (UUID uuid : pending.keySet()) {
+      double[] values = pending.remove(uuid);
+      if (values != null) {
+        Bukkit.getPluginManager().callEvent(new MoneyChangeEvent(uuid, values[0], values[1]));
+        metrics.increment(Counter.EVENTS_FIRED);
+      }
+    }
+  }
+}
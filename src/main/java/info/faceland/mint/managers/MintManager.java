@@ -19,11 +19,20 @@
 package info.faceland.mint.managers;
 
 import com.tealcube.minecraft.bukkit.shade.apache.commons.lang3.Validate;
+import com.tealcube.minecraft.bukkit.shade.google.common.base.Optional;
 import java.util.HashMap;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
+import org.nunnerycode.mint.accounts.AccountSnapshot;
+import org.nunnerycode.mint.accounts.BalanceChange;
+import org.nunnerycode.mint.accounts.BalanceTable;
 import org.nunnerycode.mint.accounts.BankAccount;
+import org.nunnerycode.mint.accounts.Leaderboard;
 import org.nunnerycode.mint.accounts.PlayerAccount;
+import org.nunnerycode.mint.accounts.Transfer;
+import org.nunnerycode.mint.storage.DataStorage;
+import org.nunnerycode.mint.storage.MappedLedger;
+import org.nunnerycode.mint.storage.TransactionJournal;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -32,65 +41,487 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
 
+/**
+ * Holds every balance in minor units, see {@link org.nunnerycode.mint.accounts.Money}.
+ * <p>
+ * Changes to an account happen under the lock of its owner's stripe, and transfers take the
+ * stripes of every account involved in ascending order, so no one can change an account in the
+ * middle of a transfer.
+ */
 public class MintManager {
 
-  private final Map<UUID, PlayerAccount> playerAccountMap = new ConcurrentHashMap<>();
-  private final Map<UUID, BankAccount> bankAccountMap = new ConcurrentHashMap<>();
+  private static final int ACCOUNT_LOCK_STRIPES = 64;
+  private static final ToLongFunction<UUID> NEW_ACCOUNT = uuid -> 0L;
+
+  private final Leaderboard leaderboard = new Leaderboard();
+  private final BalanceTable playerBalances = new BalanceTable(0, this::playerBalanceChanged,
+      leaderboard::setPlayerBalance);
+  private final BalanceTable bankBalances = new BalanceTable(0, this::bankBalanceChanged,
+      leaderboard::setBankBalance);
   private final Map<UUID, Inventory> pawnShopMap = new HashMap<>();
+  private final Set<UUID> pinnedAccounts = ConcurrentHashMap.newKeySet();
+  private final Map<UUID, Long> removedBanks = new ConcurrentHashMap<>();
+  private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+  private final Lock[] accountLocks = new Lock[ACCOUNT_LOCK_STRIPES];
+  private final ToLongFunction<UUID> playerBalanceLoader = this::loadPlayerBalance;
+  private final ToLongFunction<UUID> bankBalanceLoader = this::loadBankBalance;
+  private volatile TransactionJournal journal;
+  private volatile DataStorage lazyStorage;
+  private volatile MappedLedger playerLedger;
+  private int unsavedSnapshots;
+  private long snapshots;
+
+  public MintManager() {
+    for (int i = 0; i < accountLocks.length; i++) {
+      accountLocks[i] = new ReentrantLock();
+    }
+  }
+
+  public void setJournal(TransactionJournal journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * Keeps player balances in the given ledger instead of on the heap. The ledger persists them
+   * itself, so player accounts are no longer part of snapshots.
+   */
+  public void setPlayerLedger(MappedLedger ledger) {
+    if (ledger != null) {
+      ledger.setChangeListener(this::playerBalanceChanged);
+      ledger.forEach(leaderboard::setPlayerBalance);
+    }
+    this.playerLedger = ledger;
+  }
+
+  /**
+   * Loads accounts from the given storage the first time they are used instead of expecting all
+   * of them up front. Saved accounts that are not pinned are unloaded again after each save.
+   */
+  public void setLazyStorage(DataStorage storage) {
+    this.lazyStorage = storage;
+  }
+
+  /**
+   * Keeps the accounts of the given player loaded, loading them now if needed. Safe to call from
+   * async threads, which is where the blocking storage read belongs.
+   */
+  public void pinAccount(UUID uuid) {
+    Validate.notNull(uuid, "uuid cannot be null");
+    if (lazyStorage == null) {
+      return;
+    }
+    pinnedAccounts.add(uuid);
+    getPlayerBalance(uuid);
+    hasBankAccount(uuid);
+  }
+
+  public void unpinAccount(UUID uuid) {
+    Validate.notNull(uuid, "uuid cannot be null");
+    pinnedAccounts.remove(uuid);
+  }
+
+  public long getPlayerBalance(UUID uuid) {
+    Validate.notNull(uuid, "uuid cannot be null");
+    MappedLedger ledger = playerLedger;
+    if (ledger != null) {
+      return ledger.getOrCreate(uuid);
+    }
+    return playerBalances.computeIfAbsent(uuid, playerBalanceLoader);
+  }
 
-  public double getPlayerBalance(UUID uuid) {
+  /**
+   * Returns the player balance, or {@code defaultBalance} if there is no such account, without
+   * creating one. With lazy accounts an account that is not loaded is read from storage.
+   */
+  public long getPlayerBalanceOrDefault(UUID uuid, long defaultBalance) {
     Validate.notNull(uuid, "uuid cannot be null");
-    if (!playerAccountMap.containsKey(uuid)) {
-      playerAccountMap.put(uuid, new PlayerAccount(uuid));
+    if (!hasPlayerAccount(uuid)) {
+      return defaultBalance;
+    }
+    MappedLedger ledger = playerLedger;
+    if (ledger != null) {
+      return ledger.get(uuid);
     }
-    return playerAccountMap.get(uuid).getBalance();
+    return playerBalances.getOrDefault(uuid, defaultBalance);
   }
 
-  public void setPlayerBalance(UUID uuid, double balance) {
+  /**
+   * Creates an empty player account unless one exists, in memory or with lazy accounts in
+   * storage. Returns true only if this call created it, so concurrent callers cannot both create
+   * the account and reset a balance the other one already changed.
+   */
+  public boolean createPlayerAccount(UUID uuid) {
     Validate.notNull(uuid, "uuid cannot be null");
-    PlayerAccount account =
-        playerAccountMap.containsKey(uuid) ? playerAccountMap.get(uuid) : new PlayerAccount(uuid);
-    account.setBalance(balance);
-    playerAccountMap.put(uuid, account);
+    while (true) {
+      long generation = playerBalances.getGeneration();
+      if (hasPlayerAccount(uuid)) {
+        return false;
+      }
+      snapshotLock.readLock().lock();
+      Lock accountLock = accountLock(uuid);
+      accountLock.lock();
+      try {
+        MappedLedger ledger = playerLedger;
+        if (ledger != null) {
+          return ledger.create(uuid);
+        }
+        // an account unloaded since the check above may exist in storage, so check again
+        if (generation == playerBalances.getGeneration()) {
+          return playerBalances.putIfAbsent(uuid, 0L, true);
+        }
+      } finally {
+        accountLock.unlock();
+        snapshotLock.readLock().unlock();
+      }
+    }
   }
 
-  public double getBankBalance(UUID uuid) {
+  public void setPlayerBalance(UUID uuid, long balance) {
     Validate.notNull(uuid, "uuid cannot be null");
-    if (!bankAccountMap.containsKey(uuid)) {
-      bankAccountMap.put(uuid, new BankAccount(uuid));
+    snapshotLock.readLock().lock();
+    Lock accountLock = accountLock(uuid);
+    accountLock.lock();
+    try {
+      MappedLedger ledger = playerLedger;
+      if (ledger != null) {
+        ledger.set(uuid, balance);
+      } else {
+        playerBalances.put(uuid, balance, true);
+      }
+    } finally {
+      accountLock.unlock();
+      snapshotLock.readLock().unlock();
     }
-    return bankAccountMap.get(uuid).getBalance();
   }
 
-  public void setBankBalance(UUID uuid, double balance) {
+  /**
+   * Atomically adds {@code delta} to a player balance, creating the account if needed. A negative
+   * delta that would leave the balance below {@code floor} is refused and changes nothing.
+   * Returns the balance before the change; the change was refused exactly when
+   * {@code delta < 0 && previous + delta < floor}. Throws {@link ArithmeticException} instead of
+   * overflowing.
+   */
+  public long addPlayerBalance(UUID uuid, long delta, long floor) {
     Validate.notNull(uuid, "uuid cannot be null");
-    BankAccount account =
-        bankAccountMap.containsKey(uuid) ? bankAccountMap.get(uuid) : new BankAccount(uuid);
-    account.setBalance(balance);
-    bankAccountMap.put(uuid, account);
+    snapshotLock.readLock().lock();
+    Lock accountLock = accountLock(uuid);
+    accountLock.lock();
+    try {
+      return addPlayerBalanceLocked(uuid, delta, floor);
+    } finally {
+      accountLock.unlock();
+      snapshotLock.readLock().unlock();
+    }
+  }
+
+  public boolean compareAndSetPlayerBalance(UUID uuid, long expected, long balance) {
+    Validate.notNull(uuid, "uuid cannot be null");
+    snapshotLock.readLock().lock();
+    Lock accountLock = accountLock(uuid);
+    accountLock.lock();
+    try {
+      MappedLedger ledger = playerLedger;
+      if (ledger != null) {
+        return ledger.compareAndSet(uuid, expected, balance);
+      }
+      return playerBalances.compareAndSet(uuid, expected, balance, playerBalanceLoader);
+    } finally {
+      accountLock.unlock();
+      snapshotLock.readLock().unlock();
+    }
+  }
+
+  public long getBankBalance(UUID uuid) {
+    Validate.notNull(uuid, "uuid cannot be null");
+    return bankBalances.computeIfAbsent(uuid, bankBalanceLoader);
+  }
+
+  /**
+   * Bank counterpart of {@link #getPlayerBalanceOrDefault(UUID, long)}.
+   */
+  public long getBankBalanceOrDefault(UUID uuid, long defaultBalance) {
+    Validate.notNull(uuid, "uuid cannot be null");
+    if (!hasBankAccount(uuid)) {
+      return defaultBalance;
+    }
+    return bankBalances.getOrDefault(uuid, defaultBalance);
+  }
+
+  public void setBankBalance(UUID uuid, long balance) {
+    Validate.notNull(uuid, "uuid cannot be null");
+    snapshotLock.readLock().lock();
+    Lock accountLock = accountLock(uuid);
+    accountLock.lock();
+    try {
+      bankBalances.put(uuid, balance, true);
+    } finally {
+      accountLock.unlock();
+      snapshotLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Bank counterpart of {@link #addPlayerBalance(UUID, long, long)}.
+   */
+  public long addBankBalance(UUID uuid, long delta, long floor) {
+    Validate.notNull(uuid, "uuid cannot be null");
+    snapshotLock.readLock().lock();
+    Lock accountLock = accountLock(uuid);
+    accountLock.lock();
+    try {
+      return bankBalances.add(uuid, delta, floor, bankBalanceLoader);
+    } finally {
+      accountLock.unlock();
+      snapshotLock.readLock().unlock();
+    }
+  }
+
+  public boolean compareAndSetBankBalance(UUID uuid, long expected, long balance) {
+    Validate.notNull(uuid, "uuid cannot be null");
+    snapshotLock.readLock().lock();
+    Lock accountLock = accountLock(uuid);
+    accountLock.lock();
+    try {
+      return bankBalances.compareAndSet(uuid, expected, balance, bankBalanceLoader);
+    } finally {
+      accountLock.unlock();
+      snapshotLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Adds an account read from storage without marking it as changed.
+   */
+  public void loadPlayerAccount(PlayerAccount account) {
+    Validate.notNull(account, "account cannot be null");
+    MappedLedger ledger = playerLedger;
+    if (ledger != null) {
+      ledger.load(account.getOwner(), account.getBalance());
+      leaderboard.setPlayerBalance(account.getOwner(), account.getBalance());
+      return;
+    }
+    playerBalances.put(account.getOwner(), account.getBalance(), false);
+  }
+
+  /**
+   * Adds an account read from storage without marking it as changed.
+   */
+  public void loadBankAccount(BankAccount account) {
+    Validate.notNull(account, "account cannot be null");
+    bankBalances.put(account.getOwner(), account.getBalance(), false);
+  }
+
+  /**
+   * Applies accounts replayed from the journal on top of whatever was loaded and flags them as
+   * changed so the next snapshot persists them. Banks removed in the journal are removed again.
+   */
+  public void recoverAccounts(AccountSnapshot recovered) {
+    MappedLedger ledger = playerLedger;
+    for (PlayerAccount account : recovered.getPlayerAccounts()) {
+      if (ledger != null) {
+        ledger.load(account.getOwner(), account.getBalance());
+        leaderboard.setPlayerBalance(account.getOwner(), account.getBalance());
+      } else {
+        playerBalances.put(account.getOwner(), account.getBalance(), true);
+      }
+    }
+    for (BankAccount account : recovered.getBankAccounts()) {
+      bankBalances.put(account.getOwner(), account.getBalance(), true);
+    }
+    for (UUID uuid : recovered.getRemovedBankAccounts()) {
+      bankBalances.remove(uuid);
+      removedBanks.put(uuid, snapshots);
+      leaderboard.setBankBalance(uuid, 0L);
+    }
   }
 
   public boolean hasPlayerAccount(UUID uuid) {
     Validate.notNull(uuid, "uuid cannot be null");
-    return playerAccountMap.containsKey(uuid);
+    MappedLedger ledger = playerLedger;
+    if (ledger != null) {
+      return ledger.contains(uuid);
+    }
+    if (playerBalances.contains(uuid)) {
+      return true;
+    }
+    while (lazyStorage != null) {
+      long generation = playerBalances.getGeneration();
+      PlayerAccount account = readPlayerAccount(uuid);
+      if (account == null) {
+        return playerBalances.contains(uuid);
+      }
+      if (playerBalances.loadIfAbsent(uuid, account.getBalance(), generation)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   public boolean hasBankAccount(UUID uuid) {
     Validate.notNull(uuid, "uuid cannot be null");
-    return bankAccountMap.containsKey(uuid);
+    if (bankBalances.contains(uuid)) {
+      return true;
+    }
+    while (lazyStorage != null) {
+      long generation = bankBalances.getGeneration();
+      BankAccount account = readBankAccount(uuid);
+      if (account == null) {
+        return bankBalances.contains(uuid);
+      }
+      if (bankBalances.loadIfAbsent(uuid, account.getBalance(), generation)) {
+        return true;
+      }
+    }
+    return false;
   }
 
+  /**
+   * Removes a bank account. The removal is handed to storage with every snapshot until one taken
+   * after it has been saved, and until then the account is never read back from storage.
+   */
   public void removeBankAccount(UUID uuid) {
     Validate.notNull(uuid);
-    bankAccountMap.remove(uuid);
+    snapshotLock.readLock().lock();
+    Lock accountLock = accountLock(uuid);
+    accountLock.lock();
+    try {
+      bankBalances.remove(uuid);
+      removedBanks.put(uuid, snapshots);
+      leaderboard.setBankBalance(uuid, 0L);
+      TransactionJournal currentJournal = journal;
+      if (currentJournal != null) {
+        currentJournal.appendBankRemoval(uuid);
+      }
+    } finally {
+      accountLock.unlock();
+      snapshotLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Applies every transfer or none of them. Nothing changes and false is returned when a bank
+   * account involved does not exist or an account would end up below zero; missing player
+   * accounts are created only once the transfers are applied. A snapshot sees either all of the
+   * transfers or none of them. Throws {@link ArithmeticException}, again changing nothing, if a
+   * balance would overflow.
+   */
+  public boolean transferAll(List<Transfer> transfers) {
+    return transferAll(transfers, null);
+  }
+
+  /**
+   * Like {@link #transferAll(List)}, and adds the balance before and after of every player
+   * account the transfers changed to {@code playerChanges}, if not null.
+   */
+  public boolean transferAll(List<Transfer> transfers, List<BalanceChange> playerChanges) {
+    Validate.notNull(transfers, "transfers cannot be null");
+    Map<UUID, Long> playerDeltas = new HashMap<>();
+    Map<UUID, Long> bankDeltas = new HashMap<>();
+    boolean[] stripes = new boolean[accountLocks.length];
+    for (Transfer transfer : transfers) {
+      (transfer.isFromBank() ? bankDeltas : playerDeltas)
+          .merge(transfer.getFrom(), -transfer.getAmount(), Math::addExact);
+      (transfer.isToBank() ? bankDeltas : playerDeltas)
+          .merge(transfer.getTo(), transfer.getAmount(), Math::addExact);
+      stripes[stripe(transfer.getFrom())] = true;
+      stripes[stripe(transfer.getTo())] = true;
+    }
+    attempt:
+    while (true) {
+      // with lazy accounts storage is read here, before any lock is taken, so the checks below
+      // only look at memory and an account unloaded since is loaded again by another attempt
+      long playerGeneration = playerBalances.getGeneration();
+      long bankGeneration = bankBalances.getGeneration();
+      for (UUID uuid : playerDeltas.keySet()) {
+        hasPlayerAccount(uuid);
+      }
+      for (UUID uuid : bankDeltas.keySet()) {
+        if (!hasBankAccount(uuid)) {
+          return false;
+        }
+      }
+      snapshotLock.readLock().lock();
+      try {
+        for (int i = 0; i < stripes.length; i++) {
+          if (stripes[i]) {
+            accountLocks[i].lock();
+          }
+        }
+        try {
+          MappedLedger ledger = playerLedger;
+          for (Map.Entry<UUID, Long> entry : playerDeltas.entrySet()) {
+            long balance;
+            if (ledger != null || playerBalances.contains(entry.getKey())) {
+              balance = ledger != null ? ledger.get(entry.getKey())
+                  : playerBalances.getOrDefault(entry.getKey(), 0L);
+            } else if (playerGeneration == playerBalances.getGeneration()) {
+              balance = 0L;
+            } else {
+              continue attempt;
+            }
+            if (!canApply(balance, entry.getValue())) {
+              return false;
+            }
+          }
+          for (Map.Entry<UUID, Long> entry : bankDeltas.entrySet()) {
+            if (!bankBalances.contains(entry.getKey())) {
+              if (bankGeneration == bankBalances.getGeneration()) {
+                return false;
+              }
+              continue attempt;
+            }
+            if (!canApply(bankBalances.getOrDefault(entry.getKey(), 0L), entry.getValue())) {
+              return false;
+            }
+          }
+          for (Map.Entry<UUID, Long> entry : playerDeltas.entrySet()) {
+            if (entry.getValue() != 0L) {
+              long previous = ledger != null
+                  ? ledger.add(entry.getKey(), entry.getValue(), Long.MIN_VALUE)
+                  : playerBalances.add(entry.getKey(), entry.getValue(), Long.MIN_VALUE,
+                      NEW_ACCOUNT);
+              if (playerChanges != null) {
+                playerChanges.add(
+                    new BalanceChange(entry.getKey(), previous, previous + entry.getValue()));
+              }
+            }
+          }
+          for (Map.Entry<UUID, Long> entry : bankDeltas.entrySet()) {
+            if (entry.getValue() != 0L) {
+              bankBalances.add(entry.getKey(), entry.getValue(), Long.MIN_VALUE, bankBalanceLoader);
+            }
+          }
+          return true;
+        } finally {
+          for (int i = stripes.length - 1; i >= 0; i--) {
+            if (stripes[i]) {
+              accountLocks[i].unlock();
+            }
+          }
+        }
+      } finally {
+        snapshotLock.readLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Every account that was loaded or changed since startup, ranked by wallet and bank together.
+   * With lazy accounts this leaves out accounts that were not used since.
+   */
+  public Leaderboard getLeaderboard() {
+    return leaderboard;
   }
 
   public List<String> banksAsStrings() {
     List<String> strings = new ArrayList<>();
-    for (UUID uuid : bankAccountMap.keySet()) {
-      strings.add(uuid.toString());
-    }
+    bankBalances.forEach((uuid, balance) -> strings.add(uuid.toString()));
     return strings;
   }
 
@@ -107,11 +538,152 @@ public class MintManager {
   }
 
   public Set<PlayerAccount> getPlayerAccounts() {
-    return new HashSet<>(playerAccountMap.values());
+    Set<PlayerAccount> accounts = new HashSet<>();
+    MappedLedger ledger = playerLedger;
+    if (ledger != null) {
+      ledger.forEach((uuid, balance) -> accounts.add(new PlayerAccount(uuid, balance)));
+    } else {
+      playerBalances.forEach((uuid, balance) -> accounts.add(new PlayerAccount(uuid, balance)));
+    }
+    return accounts;
   }
 
   public Set<BankAccount> getBankAccounts() {
-    return new HashSet<>(bankAccountMap.values());
+    Set<BankAccount> accounts = new HashSet<>();
+    bankBalances.forEach((uuid, balance) -> accounts.add(new BankAccount(uuid, balance)));
+    return accounts;
+  }
+
+  /**
+   * Returns copies of every account changed since the last snapshot and clears their changed flag.
+   * The journal is sealed at the same moment, so every journaled change is either part of this
+   * snapshot or of a later segment.
+   */
+  public AccountSnapshot snapshot() {
+    snapshotLock.writeLock().lock();
+    try {
+      long segment = journal == null ? -1 : journal.seal();
+      unsavedSnapshots++;
+      Set<PlayerAccount> players = new HashSet<>();
+      playerBalances.drainDirty((uuid, balance) -> players.add(new PlayerAccount(uuid, balance)));
+      Set<BankAccount> banks = new HashSet<>();
+      bankBalances.drainDirty((uuid, balance) -> banks.add(new BankAccount(uuid, balance)));
+      Set<UUID> removed = new HashSet<>(removedBanks.keySet());
+      return new AccountSnapshot(players, banks, removed, snapshots++, segment);
+    } finally {
+      snapshotLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Reports the outcome of saving a snapshot. A saved snapshot flushes the player ledger, if any,
+   * releases its journal segment, forgets the bank removals made before it was taken and, once no
+   * other snapshot is waiting on storage, lets idle accounts be unloaded. A failed one flags its
+   * accounts as changed again so the next snapshot retries them; its removals are still pending
+   * and go out with the next snapshot anyway.
+   */
+  public void completeSnapshot(AccountSnapshot snapshot, boolean saved) {
+    MappedLedger ledger = playerLedger;
+    if (saved && ledger != null) {
+      ledger.force();
+    }
+    snapshotLock.writeLock().lock();
+    try {
+      unsavedSnapshots--;
+      if (!saved) {
+        if (journal != null) {
+          journal.hold();
+        }
+        for (PlayerAccount account : snapshot.getPlayerAccounts()) {
+          playerBalances.markDirty(account.getOwner());
+        }
+        for (BankAccount account : snapshot.getBankAccounts()) {
+          bankBalances.markDirty(account.getOwner());
+        }
+        return;
+      }
+      if (journal != null) {
+        journal.release(snapshot.getJournalSegment());
+      }
+      for (UUID uuid : snapshot.getRemovedBankAccounts()) {
+        removedBanks.computeIfPresent(uuid,
+            (key, firstSnapshot) -> firstSnapshot <= snapshot.getNumber() ? null : firstSnapshot);
+      }
+      if (unsavedSnapshots == 0 && lazyStorage != null) {
+        playerBalances.evictClean(pinnedAccounts::contains);
+        bankBalances.evictClean(pinnedAccounts::contains);
+      }
+    } finally {
+      snapshotLock.writeLock().unlock();
+    }
+  }
+
+  private PlayerAccount readPlayerAccount(UUID uuid) {
+    DataStorage storage = lazyStorage;
+    if (storage == null) {
+      return null;
+    }
+    Optional<PlayerAccount> account = storage.loadPlayerAccount(uuid);
+    return account.isPresent() ? account.get() : null;
+  }
+
+  private BankAccount readBankAccount(UUID uuid) {
+    DataStorage storage = lazyStorage;
+    if (storage == null || removedBanks.containsKey(uuid)) {
+      return null;
+    }
+    Optional<BankAccount> account = storage.loadBankAccount(uuid);
+    return account.isPresent() ? account.get() : null;
+  }
+
+  private void playerBalanceChanged(UUID uuid, long balance) {
+    leaderboard.setPlayerBalance(uuid, balance);
+    TransactionJournal currentJournal = journal;
+    if (currentJournal != null) {
+      currentJournal.appendPlayerBalance(uuid, balance);
+    }
+  }
+
+  private long addPlayerBalanceLocked(UUID uuid, long delta, long floor) {
+    MappedLedger ledger = playerLedger;
+    if (ledger != null) {
+      return ledger.add(uuid, delta, floor);
+    }
+    return playerBalances.add(uuid, delta, floor, playerBalanceLoader);
+  }
+
+  private static boolean canApply(long balance, long delta) {
+    return Math.addExact(balance, delta) >= 0L || delta >= 0L;
+  }
+
+  private Lock accountLock(UUID uuid) {
+    return accountLocks[stripe(uuid)];
+  }
+
+  private static int stripe(UUID uuid) {
+    int h = uuid.hashCode() * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & (ACCOUNT_LOCK_STRIPES - 1);
+  }
+
+  private void bankBalanceChanged(UUID uuid, long balance) {
+    if (!removedBanks.isEmpty()) {
+      removedBanks.remove(uuid);
+    }
+    leaderboard.setBankBalance(uuid, balance);
+    TransactionJournal currentJournal = journal;
+    if (currentJournal != null) {
+      currentJournal.appendBankBalance(uuid, balance);
+    }
+  }
+
+  private long loadPlayerBalance(UUID uuid) {
+    PlayerAccount account = readPlayerAccount(uuid);
+    return account == null ? 0L : account.getBalance();
+  }
+
+  private long loadBankBalance(UUID uuid) {
+    BankAccount account = readBankAccount(uuid);
+    return account == null ? 0L : account.getBalance();
   }
 
 }
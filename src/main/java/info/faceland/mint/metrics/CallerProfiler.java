@@ -0,0 +1,182 @@
+/**
+ * The MIT License Copyright (c) 2015 Teal Cube Games
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package info.faceland.mint.metrics;
+
+import info.faceland.mint.MintEconomy;
+import info.faceland.mint.metrics.LatencyHistogram.Summary;
+import info.faceland.mint.metrics.MintMetrics.Timer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.bukkit.plugin.java.JavaPlugin;
+
+/**
+ * Finds out which plugin makes the economy calls. One in {@code sampleRate} calls walks the stack
+ * to the first class loaded by a plugin and records the call's latency and, where the JVM can
+ * tell, the bytes it allocated under that plugin's name. Calls that are not sampled only pay for
+ * a random number.
+ */
+public class CallerProfiler {
+
+  private static final String SERVER = "(server)";
+  private static final StackWalker WALKER =
+      StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+  private final int sampleRate;
+  private final com.sun.management.ThreadMXBean threads;
+  private final Map<ClassLoader, String> pluginNames = new ConcurrentHashMap<>();
+  private final Map<String, CallerStats> callers = new ConcurrentHashMap<>();
+  private final long since = System.currentTimeMillis();
+
+  public CallerProfiler(int sampleRate) {
+    this.sampleRate = Math.max(1, sampleRate);
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    com.sun.management.ThreadMXBean threads = null;
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      threads = (com.sun.management.ThreadMXBean) bean;
+      if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+        threads = null;
+      }
+    }
+    this.threads = threads;
+  }
+
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * Starts a sample of the current call, or returns null if this call is not sampled.
+   */
+  public Sample sample() {
+    if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+      return null;
+    }
+    String caller = WALKER.walk(frames -> frames
+        .map(StackWalker.StackFrame::getDeclaringClass)
+        .filter(type -> type != MintEconomy.class && type != CallerProfiler.class)
+        .map(this::pluginName)
+        .filter(Objects::nonNull)
+        .findFirst()
+        .orElse(SERVER));
+    return new Sample(callers.computeIfAbsent(caller, CallerStats::new), allocatedBytes());
+  }
+
+  /**
+   * One line per caller and method, busiest caller first. Call counts are estimated from the
+   * samples.
+   */
+  public List<String> report() {
+    List<CallerStats> sorted = new ArrayList<>(callers.values());
+    sorted.sort((a, b) -> Long.compare(b.samples.sum(), a.samples.sum()));
+    List<String> lines = new ArrayList<>();
+    lines.add("Economy callers sampled 1 in " + sampleRate + " for the last "
+        + (System.currentTimeMillis() - since) / 60000 + " minutes");
+    for (CallerStats stats : sorted) {
+      lines.add(stats.name + ": ~" + stats.samples.sum() * sampleRate + " calls");
+      for (Timer timer : Timer.values()) {
+        CallerTimer callerTimer = stats.timers.get(timer.ordinal());
+        if (callerTimer == null) {
+          continue;
+        }
+        Summary summary = callerTimer.latency.summarize();
+        String line = "  " + timer.name().toLowerCase().replace('_', '-') + ": ~"
+            + summary.getCount() * sampleRate + " calls " + summary;
+        if (threads != null && summary.getCount() > 0) {
+          line += " alloc=" + callerTimer.allocated.sum() / summary.getCount() + "B/call";
+        }
+        lines.add(line);
+      }
+    }
+    return lines;
+  }
+
+  private String pluginName(Class<?> type) {
+    ClassLoader loader = type.getClassLoader();
+    if (loader == null) {
+      return null;
+    }
+    String name = pluginNames.computeIfAbsent(loader, key -> {
+      try {
+        return JavaPlugin.getProvidingPlugin(type).getName();
+      } catch (IllegalArgumentException | IllegalStateException e) {
+        return "";
+      }
+    });
+    return name.isEmpty() ? null : name;
+  }
+
+  private long allocatedBytes() {
+    return threads == null ? 0L : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  public class Sample {
+
+    private final CallerStats stats;
+    private final long allocatedAtStart;
+
+    private Sample(CallerStats stats, long allocatedAtStart) {
+      this.stats = stats;
+      this.allocatedAtStart = allocatedAtStart;
+    }
+
+    /**
+     * Records the sampled call, which started at {@code start} from {@link System#nanoTime()}.
+     */
+    public void finish(Timer timer, long start) {
+      long nanos = System.nanoTime() - start;
+      long allocated = allocatedBytes() - allocatedAtStart;
+      stats.samples.increment();
+      CallerTimer callerTimer = stats.timer(timer);
+      callerTimer.latency.record(nanos);
+      callerTimer.allocated.add(Math.max(0L, allocated));
+    }
+  }
+
+  private static class CallerStats {
+
+    private final String name;
+    private final LongAdder samples = new LongAdder();
+    private final AtomicReferenceArray<CallerTimer> timers =
+        new AtomicReferenceArray<>(Timer.values().length);
+
+    private CallerStats(String name) {
+      this.name = name;
+    }
+
+    private CallerTimer timer(Timer timer) {
+      CallerTimer callerTimer = timers.get(timer.ordinal());
+      if (callerTimer == null) {
+        timers.compareAndSet(timer.ordinal(), null, new CallerTimer());
+        callerTimer = timers.get(timer.ordinal());
+      }
+      return callerTimer;
+    }
+  }
+
+  private static class CallerTimer {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder allocated = new LongAdder();
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * The MIT License Copyright (c) 2015 Teal Cube Games
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package info.faceland.mint.metrics;
+
+import info.faceland.mint.metrics.LatencyHistogram.Summary;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and counts for the work the plugin does on behalf of others. Everything here can be
+ * recorded from any thread without locking, and survives a {@code /mint reload}.
+ */
+public class MintMetrics {
+
+  public enum Timer {
+    GET_BALANCE, HAS, WITHDRAW, DEPOSIT, SET_BALANCE, BANK, TRANSFER, SAVE, ENTITY_DEATH,
+    PAWN_CLOSE
+  }
+
+  public enum Counter {
+    SAVED_BYTES, DROPS_SPAWNED, DROPS_PICKED_UP, DROPS_MERGED, DROPS_EXPIRED, EVENTS_FIRED
+  }
+
+  private final LatencyHistogram[] timers = new LatencyHistogram[Timer.values().length];
+  private final LongAdder[] counters = new LongAdder[Counter.values().length];
+  private volatile long since = System.currentTimeMillis();
+
+  public MintMetrics() {
+    for (int i = 0; i < timers.length; i++) {
+      timers[i] = new LatencyHistogram();
+    }
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records the time since {@code start}, a value from {@link System#nanoTime()}.
+   */
+  public void record(Timer timer, long start) {
+    timers[timer.ordinal()].record(System.nanoTime() - start);
+  }
+
+  public void increment(Counter counter) {
+    counters[counter.ordinal()].increment();
+  }
+
+  public void add(Counter counter, long amount) {
+    counters[counter.ordinal()].add(amount);
+  }
+
+  public Summary summarize(Timer timer) {
+    return timers[timer.ordinal()].summarize();
+  }
+
+  public long get(Counter counter) {
+    return counters[counter.ordinal()].sum();
+  }
+
+  public void reset() {
+    for (LatencyHistogram timer : timers) {
+      timer.reset();
+    }
+    for (LongAdder counter : counters) {
+      counter.reset();
+    }
+    since = System.currentTimeMillis();
+  }
+
+  /**
+   * One line per timer that has seen use and one for all counters, for chat and the log.
+   */
+  public List<String> report() {
+    List<String> lines = new ArrayList<>();
+    long minutes = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - since);
+    lines.add("Bullion metrics for the last " + minutes + " minutes");
+    for (Timer timer : Timer.values()) {
+      Summary summary = summarize(timer);
+      if (summary.getCount() > 0) {
+        lines.add(name(timer) + ": " + summary);
+      }
+    }
+    StringBuilder counts = new StringBuilder();
+    for (Counter counter : Counter.values()) {
+      if (counts.length() > 0) {
+        counts.append(' ');
+      }
+      counts.append(name(counter)).append('=').append(get(counter));
+    }
+    lines.add(counts.toString());
+    return lines;
+  }
+
+  private static String name(Enum<?> value) {
+    return value.name().toLowerCase().replace('_', '-');
+  }
+}
@@ -0,0 +1,248 @@
+package info.faceland.mint.tasks;
+
+import info.faceland.mint.metrics.MintMetrics;
+import info.faceland.mint.metrics.MintMetrics.Counter;
+import info.faceland.mint.util.MintUtil;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * Hands cash drops to the players standing on them. Drops are kept in buckets per world and
+ * chunk, and every tick only the chunks around online players are looked at, so the cost grows
+ * with the number of players rather than the number of drops on the ground.
+ * <p>
+ * Drops move after they spawn, so every {@link #SWEEP_INTERVAL} ticks all buckets are swept to
+ * forget drops that are gone and to move the others to the chunk they ended up in. The sweep also
+ * merges drops that have come to rest close to each other and belong to the same owner into one
+ * drop worth their sum, protected for as long as the longest protected of them. Drops whose value
+ * cannot be read are left alone.
+ */
+public class PickupEngine extends BukkitRunnable {
+
+  private static final double PICKUP_RADIUS = 1.5;
+  private static final int SWEEP_INTERVAL = 20;
+  private static final int MIN_PICKUP_DELAY = 10;
+  private static final int PICKUP_DELAY_SPREAD = 20;
+
+  private final Map<UUID, Map<Long, List<Drop>>> worlds = new HashMap<>();
+  private final List<Drop> incoming = new ArrayList<>();
+  private final Set<UUID> tracked = new HashSet<>();
+  private final Random random = new Random();
+  private final Location playerLocation = new Location(null, 0, 0, 0);
+  private final Location dropLocation = new Location(null, 0, 0, 0);
+  private final Location mergeLocation = new Location(null, 0, 0, 0);
+  private final double mergeRadiusSquared;
+  private final MintMetrics metrics;
+  private int tick;
+
+  /**
+   * @param mergeRadius how close resting drops must be to be merged, 0 to never merge them
+   */
+  public PickupEngine(double mergeRadius, MintMetrics metrics) {
+    this.mergeRadiusSquared = mergeRadius * mergeRadius;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Starts watching a cash drop from the next tick on. Drops can't be picked up by the engine for
+   * the first half second or so, which gives them time to scatter.
+   */
+  public void track(Item item) {
+    if (!item.isValid() || !tracked.add(item.getUniqueId())) {
+      return;
+    }
+    incoming.add(new Drop(item, tick + MIN_PICKUP_DELAY + random.nextInt(PICKUP_DELAY_SPREAD)));
+  }
+
+  public int size() {
+    return tracked.size();
+  }
+
+  @Override
+  public void run() {
+    tick++;
+    for (Drop drop : incoming) {
+      drop.item.getLocation(dropLocation);
+      bucket(drop.item.getWorld().getUID(), chunkKey(dropLocation)).add(drop);
+    }
+    incoming.clear();
+    if (tick % SWEEP_INTERVAL == 0) {
+      sweep();
+    }
+    if (tracked.isEmpty()) {
+      return;
+    }
+    for (Player player : Bukkit.getOnlinePlayers()) {
+      if (player.isDead() || player.getHealth() <= 0) {
+        continue;
+      }
+      Map<Long, List<Drop>> chunks = worlds.get(player.getWorld().getUID());
+      if (chunks == null || chunks.isEmpty()) {
+        continue;
+      }
+      player.getLocation(playerLocation);
+      int chunkX = playerLocation.getBlockX() >> 4;
+      int chunkZ = playerLocation.getBlockZ() >> 4;
+      for (int x = chunkX - 1; x <= chunkX + 1; x++) {
+        for (int z = chunkZ - 1; z <= chunkZ + 1; z++) {
+          List<Drop> drops = chunks.get(chunkKey(x, z));
+          if (drops != null && !drops.isEmpty()) {
+            pickup(player, drops);
+          }
+        }
+      }
+    }
+  }
+
+  private void pickup(Player player, List<Drop> drops) {
+    Iterator<Drop> iterator = drops.iterator();
+    while (iterator.hasNext()) {
+      Drop drop = iterator.next();
+      Item item = drop.item;
+      if (!item.isValid()) {
+        iterator.remove();
+        tracked.remove(item.getUniqueId());
+        continue;
+      }
+      if (tick < drop.readyTick) {
+        continue;
+      }
+      item.getLocation(dropLocation);
+      if (Math.abs(dropLocation.getX() - playerLocation.getX()) > PICKUP_RADIUS
+          || Math.abs(dropLocation.getY() - playerLocation.getY()) > PICKUP_RADIUS
+          || Math.abs(dropLocation.getZ() - playerLocation.getZ()) > PICKUP_RADIUS) {
+        continue;
+      }
+      UUID owner = item.getOwner();
+      if (owner != null && !owner.equals(player.getUniqueId())) {
+        continue;
+      }
+      // a drop whose value cannot be read yet stays tracked and is tried again
+      if (MintUtil.doCashPickup(player, item)) {
+        iterator.remove();
+        tracked.remove(item.getUniqueId());
+      }
+    }
+  }
+
+  private void sweep() {
+    for (Map.Entry<UUID, Map<Long, List<Drop>>> world : worlds.entrySet()) {
+      List<Drop> moved = new ArrayList<>();
+      Iterator<Map.Entry<Long, List<Drop>>> chunks = world.getValue().entrySet().iterator();
+      while (chunks.hasNext()) {
+        Map.Entry<Long, List<Drop>> chunk = chunks.next();
+        Iterator<Drop> drops = chunk.getValue().iterator();
+        while (drops.hasNext()) {
+          Drop drop = drops.next();
+          if (!drop.item.isValid()) {
+            drops.remove();
+            tracked.remove(drop.item.getUniqueId());
+            continue;
+          }
+          drop.item.getLocation(dropLocation);
+          if (chunkKey(dropLocation) != chunk.getKey()) {
+            drops.remove();
+            moved.add(drop);
+          }
+        }
+        if (chunk.getValue().isEmpty()) {
+          chunks.remove();
+        }
+      }
+      for (Drop drop : moved) {
+        drop.item.getLocation(dropLocation);
+        bucket(world.getKey(), chunkKey(dropLocation)).add(drop);
+      }
+      if (mergeRadiusSquared > 0) {
+        for (List<Drop> drops : world.getValue().values()) {
+          if (drops.size() > 1) {
+            merge(drops);
+          }
+        }
+      }
+    }
+    worlds.values().removeIf(Map::isEmpty);
+  }
+
+  private void merge(List<Drop> drops) {
+    for (int i = 0; i < drops.size(); i++) {
+      Drop target = drops.get(i);
+      if (!isSettled(target)) {
+        continue;
+      }
+      double value = MintUtil.getCashValue(target.item);
+      if (value < 0) {
+        continue;
+      }
+      target.item.getLocation(mergeLocation);
+      UUID owner = target.item.getOwner();
+      double merged = 0;
+      for (int j = drops.size() - 1; j > i; j--) {
+        Drop other = drops.get(j);
+        if (!isSettled(other) || !Objects.equals(owner, other.item.getOwner())) {
+          continue;
+        }
+        other.item.getLocation(dropLocation);
+        if (dropLocation.distanceSquared(mergeLocation) > mergeRadiusSquared) {
+          continue;
+        }
+        double otherValue = MintUtil.getCashValue(other.item);
+        if (otherValue < 0) {
+          continue;
+        }
+        merged += otherValue;
+        if (owner != null) {
+          MintUtil.mergeDropProtection(target.item, other.item);
+        }
+        other.item.remove();
+        drops.remove(j);
+        tracked.remove(other.item.getUniqueId());
+        metrics.increment(Counter.DROPS_MERGED);
+      }
+      if (merged > 0) {
+        MintUtil.setCashValue(target.item, value + merged);
+      }
+    }
+  }
+
+  private boolean isSettled(Drop drop) {
+    return tick >= drop.readyTick && drop.item.isValid() && drop.item.isOnGround();
+  }
+
+  private List<Drop> bucket(UUID world, long chunkKey) {
+    return worlds.computeIfAbsent(world, k -> new HashMap<>())
+        .computeIfAbsent(chunkKey, k -> new ArrayList<>());
+  }
+
+  private static long chunkKey(Location location) {
+    return chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+  }
+
+  private static long chunkKey(int chunkX, int chunkZ) {
+    return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+  }
+
+  private static class Drop {
+
+    private final Item item;
+    private final int readyTick;
+
+    private Drop(Item item, int readyTick) {
+      this.item = item;
+      this.readyTick = readyTick;
+    }
+  }
+}
@@ -16,20 +16,22 @@
  */
 package info.faceland.mint.util;
 
+import com.tealcube.minecraft.bukkit.bullion.PlayerDeathDropEvent;
 import com.tealcube.minecraft.bukkit.facecore.FacecorePlugin;
 import com.tealcube.minecraft.bukkit.facecore.utilities.FaceColor;
 import com.tealcube.minecraft.bukkit.shade.apache.commons.lang3.StringUtils;
 import com.tealcube.minecraft.bukkit.shade.apache.commons.lang3.math.NumberUtils;
 import com.tealcube.minecraft.bukkit.shade.google.common.base.CharMatcher;
+import info.faceland.mint.metrics.MintMetrics.Counter;
 import info.faceland.mint.pojo.RecentPickupEarnings;
-import info.faceland.mint.tasks.PickupTask;
 import io.pixeloutlaw.minecraft.spigot.hilt.ItemStackExtensionsKt;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
@@ -39,44 +41,90 @@ import org.bukkit.entity.Item;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.util.Vector;
 import org.nunnerycode.mint.MintPlugin;
 
 public class MintUtil {
 
-  public static Map<UUID, Double> protectedCashCache = new HashMap<>();
+  private static final Map<UUID, Double> protectedCash = new ConcurrentHashMap<>();
+  /**
+   * @deprecated the protected cash of every online player, kept for plugins that read it directly;
+   *     use {@link #getProtectedCash(Player)} and {@link #setProtectedCash(Player, double)}
+   */
+  @Deprecated
+  public static final Map<UUID, Double> protectedCashCache = protectedCash;
+  private static final Set<UUID> protectedCashPending = ConcurrentHashMap.newKeySet();
   public static Map<Player, RecentPickupEarnings> recentEarnings = new WeakHashMap<>();
   public static String CASH_STRING = ChatColor.GOLD + "REWARD!";
   private static final Random random = new Random();
 
   public static void setProtectedCash(Player player, double amount) {
-    protectedCashCache.put(player.getUniqueId(), amount);
+    protectedCash.put(player.getUniqueId(), amount);
   }
 
+  /**
+   * How much of the player's money would be kept on death. Computed by asking the
+   * PlayerDeathDropEvent listeners the first time it is needed and kept until the player quits.
+   * Off the main thread a player without an amount yet reads as 0 while it is computed on the
+   * next tick.
+   */
   public static double getProtectedCash(Player player) {
-    return protectedCashCache.getOrDefault(player.getUniqueId(), 0D);
+    Double amount = protectedCash.get(player.getUniqueId());
+    if (amount != null) {
+      return amount;
+    }
+    if (!Bukkit.isPrimaryThread()) {
+      scheduleProtectedCash(player);
+      return 0D;
+    }
+    return computeProtectedCash(player);
   }
 
-  public static boolean doCashPickup(Player player, Item item) {
-    ItemStack itemStack = item.getItemStack();
+  /**
+   * Recomputes the protected cash on the next tick, once every listener of whatever changed it
+   * has run. The old amount is still returned until then.
+   */
+  public static void invalidateProtectedCash(Player player) {
+    scheduleProtectedCash(player);
+  }
 
-    if (itemStack.getType() != Material.GOLD_NUGGET) {
-      return false;
+  public static void removeProtectedCash(Player player) {
+    protectedCash.remove(player.getUniqueId());
+  }
+
+  private static void scheduleProtectedCash(Player player) {
+    if (protectedCashPending.add(player.getUniqueId())) {
+      Bukkit.getScheduler().runTask(MintPlugin.getInstance(), () -> {
+        protectedCashPending.remove(player.getUniqueId());
+        if (player.isOnline()) {
+          computeProtectedCash(player);
+        }
+      });
     }
-    if (!MintUtil.CASH_STRING.equals(ItemStackExtensionsKt.getDisplayName(itemStack))) {
+  }
+
+  private static double computeProtectedCash(Player player) {
+    PlayerDeathDropEvent event = new PlayerDeathDropEvent(player, 50);
+    Bukkit.getPluginManager().callEvent(event);
+    MintPlugin.getInstance().getMetrics().increment(Counter.EVENTS_FIRED);
+    setProtectedCash(player, event.getAmountProtected());
+    return event.getAmountProtected();
+  }
+
+  public static boolean doCashPickup(Player player, Item item) {
+    double amount = getCashValue(item);
+    if (amount < 0) {
       return false;
     }
 
     item.remove();
     player.playSound(player.getLocation(), Sound.BLOCK_CHAIN_PLACE, 1.0F, 1.3F);
 
-    String stripped = ChatColor.stripColor(itemStack.getLore().get(0));
-    String replaced = CharMatcher.forPredicate(Character::isLetter).removeFrom(stripped).trim();
-    int stacksize = itemStack.getAmount();
-
-    double amount = stacksize * NumberUtils.toDouble(replaced);
     MintPlugin.getInstance().getEconomy().depositPlayer(player, amount);
+    MintPlugin.getInstance().getMetrics().increment(Counter.DROPS_PICKED_UP);
 
     if (!recentEarnings.containsKey(player)) {
       recentEarnings.put(player, new RecentPickupEarnings(amount));
@@ -110,10 +158,51 @@ public class MintUtil {
     );
     applyNameplate(droppedItem, amount);
     droppedItem.getPersistentDataContainer().set(MintPlugin.moneyKey, PersistentDataType.SHORT, (short) 1);
-    new PickupTask(droppedItem);
+    droppedItem.getPersistentDataContainer().set(MintPlugin.valueKey, PersistentDataType.DOUBLE, amount);
+    MintPlugin.getInstance().getPickupEngine().track(droppedItem);
+    MintPlugin.getInstance().getMetrics().increment(Counter.DROPS_SPAWNED);
     return droppedItem;
   }
 
+  /**
+   * The value of a cash drop, all nuggets together, or -1 if the item is not a cash drop. The
+   * entity stores the value of one nugget, so stacks that vanilla merged still add up. Drops
+   * spawned before their value was stored on the entity are read from their lore.
+   */
+  public static double getCashValue(Item item) {
+    Double value = item.getPersistentDataContainer().get(MintPlugin.valueKey,
+        PersistentDataType.DOUBLE);
+    ItemStack itemStack = item.getItemStack();
+    if (value != null) {
+      return itemStack.getAmount() * value;
+    }
+    if (!isCashDrop(itemStack)) {
+      return -1;
+    }
+    return itemStack.getAmount() * parseLoreValue(itemStack.getLore().get(0));
+  }
+
+  /**
+   * Reads the value of one nugget from the lore line older drops carry it in.
+   */
+  public static double parseLoreValue(String loreLine) {
+    String stripped = ChatColor.stripColor(loreLine);
+    String replaced = CharMatcher.forPredicate(Character::isLetter).removeFrom(stripped).trim();
+    return NumberUtils.toDouble(replaced);
+  }
+
+  /**
+   * Turns a cash drop into a single nugget worth the given amount and updates its nameplate.
+   */
+  public static void setCashValue(Item item, double amount) {
+    ItemStack itemStack = item.getItemStack();
+    itemStack.setAmount(1);
+    itemStack.setLore(Collections.singletonList(Double.toString(amount)));
+    item.setItemStack(itemStack);
+    applyNameplate(item, amount);
+    item.getPersistentDataContainer().set(MintPlugin.valueKey, PersistentDataType.DOUBLE, amount);
+  }
+
   private static void applyNameplate(Item item, double amount) {
     ItemStack nuggetStack = item.getItemStack();
     ItemStackExtensionsKt.setDisplayName(nuggetStack, MintUtil.CASH_STRING);
@@ -144,20 +233,73 @@ public class MintUtil {
 
   public static void applyDropProtection(Item drop, UUID owner, long duration) {
     drop.setOwner(owner);
-    Bukkit.getScheduler().runTaskLater(MintPlugin.getInstance(), () -> clearDropProtection(drop), duration);
+    PersistentDataContainer data = drop.getPersistentDataContainer();
+    data.set(MintPlugin.ownerKey, PersistentDataType.STRING, owner.toString());
+    data.set(MintPlugin.expiryKey, PersistentDataType.LONG,
+        System.currentTimeMillis() + duration * 50);
+    Bukkit.getScheduler().runTaskLater(MintPlugin.getInstance(), () -> restoreDropProtection(drop),
+        duration);
+  }
+
+  /**
+   * Keeps whichever protection of two drops with the same owner runs out later on {@code target},
+   * for when {@code other} is merged into it.
+   */
+  public static void mergeDropProtection(Item target, Item other) {
+    Long otherExpiry = other.getPersistentDataContainer().get(MintPlugin.expiryKey,
+        PersistentDataType.LONG);
+    if (otherExpiry == null) {
+      return;
+    }
+    PersistentDataContainer data = target.getPersistentDataContainer();
+    Long expiry = data.get(MintPlugin.expiryKey, PersistentDataType.LONG);
+    if (expiry == null || expiry < otherExpiry) {
+      data.set(MintPlugin.expiryKey, PersistentDataType.LONG, otherExpiry);
+    }
   }
 
   public static void clearDropProtection(Item drop) {
     if (drop != null) {
       drop.setOwner(null);
+      drop.getPersistentDataContainer().remove(MintPlugin.ownerKey);
+      drop.getPersistentDataContainer().remove(MintPlugin.expiryKey);
+    }
+  }
+
+  /**
+   * Picks the protection of a drop back up after its chunk was loaded again or its timer ran out:
+   * it is cleared if it ran out, otherwise its remaining time starts over. A merge may have moved
+   * the expiry back since the timer was started.
+   */
+  public static void restoreDropProtection(Item drop) {
+    PersistentDataContainer data = drop.getPersistentDataContainer();
+    Long expiry = data.get(MintPlugin.expiryKey, PersistentDataType.LONG);
+    String owner = data.get(MintPlugin.ownerKey, PersistentDataType.STRING);
+    if (expiry == null || owner == null) {
+      return;
+    }
+    long remaining = expiry - System.currentTimeMillis();
+    if (remaining <= 0) {
+      clearDropProtection(drop);
+      return;
     }
+    drop.setOwner(UUID.fromString(owner));
+    Bukkit.getScheduler().runTaskLater(MintPlugin.getInstance(), () -> restoreDropProtection(drop),
+        Math.max(1, remaining / 50));
   }
 
   public static boolean isCashDrop(ItemStack itemStack) {
-    return itemStack.getType() == Material.GOLD_NUGGET && itemStack.getItemMeta() != null
-        && CASH_STRING.equals(itemStack.getItemMeta().getDisplayName())
-        && itemStack.getItemMeta().getLore() != null && !itemStack.getItemMeta().getLore()
-        .isEmpty();
+    if (itemStack.getType() != Material.GOLD_NUGGET) {
+      return false;
+    }
+    ItemMeta meta = itemStack.getItemMeta();
+    return meta != null && CASH_STRING.equals(meta.getDisplayName()) && meta.hasLore()
+        && !meta.getLore().isEmpty();
+  }
+
+  public static boolean isCashDrop(Item item) {
+    return item.getPersistentDataContainer().has(MintPlugin.valueKey, PersistentDataType.DOUBLE)
+        || isCashDrop(item.getItemStack());
   }
 
   public static int getMobLevel(LivingEntity livingEntity) {
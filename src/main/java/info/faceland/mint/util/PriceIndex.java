@@ -0,0 +1,101 @@
+/**
+ * The MIT License Copyright (c) 2015 Teal Cube Games
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package info.faceland.mint.util;
+
+import io.pixeloutlaw.minecraft.spigot.config.MasterConfiguration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * Pawn shop prices from prices.yml, read once when the index is built.
+ */
+public class PriceIndex {
+
+  private static final String GEM_PREFIX = "Socket Gem";
+
+  private final double[] materialPrices;
+  private final double loreBasePrice;
+  private final double lorePerLine;
+  private final double gemPrice;
+  private final Map<String, Double> namePrices = new HashMap<>();
+
+  /**
+   * @param nameSections the {@code names} section of prices.yml, used for the configured item
+   *     names; may be null
+   */
+  public PriceIndex(MasterConfiguration settings, ConfigurationSection nameSections) {
+    Material[] materials = Material.values();
+    materialPrices = new double[materials.length];
+    for (Material material : materials) {
+      materialPrices[material.ordinal()] =
+          settings.getDouble("prices.materials." + material.name(), 0D);
+    }
+    loreBasePrice = settings.getDouble("prices.options.lore.base-price", 3D);
+    lorePerLine = settings.getDouble("prices.options.lore.per-line", 1D);
+    gemPrice = settings.getDouble("prices.special.gems", 0D);
+    if (nameSections != null) {
+      for (String name : nameSections.getKeys(false)) {
+        namePrices.put(name, settings.getDouble("prices.names." + name, 0D));
+      }
+    }
+  }
+
+  /**
+   * The price of a whole stack, 0 for empty slots and items nobody buys.
+   */
+  public double price(ItemStack itemStack) {
+    if (itemStack == null || itemStack.getType() == Material.AIR) {
+      return 0D;
+    }
+    ItemMeta meta = itemStack.hasItemMeta() ? itemStack.getItemMeta() : null;
+    String name = meta != null && meta.hasDisplayName()
+        ? ChatColor.stripColor(meta.getDisplayName()) : "";
+    double value;
+    if (name.startsWith(GEM_PREFIX)) {
+      value = gemPrice;
+    } else {
+      Double namePrice = name.isEmpty() ? null : namePrices.get(name);
+      if (namePrice != null) {
+        value = namePrice;
+      } else {
+        value = materialPrices[itemStack.getType().ordinal()];
+        List<String> lore = meta != null && meta.hasLore() ? meta.getLore() : null;
+        if (lore != null && !lore.isEmpty()) {
+          value += loreBasePrice + lorePerLine * lore.size();
+        }
+      }
+    }
+    return value * itemStack.getAmount();
+  }
+
+  /**
+   * The price of everything in {@code contents}, such as a pawn shop inventory.
+   */
+  public double price(ItemStack[] contents) {
+    double total = 0D;
+    for (ItemStack itemStack : contents) {
+      total += price(itemStack);
+    }
+    return total;
+  }
+}
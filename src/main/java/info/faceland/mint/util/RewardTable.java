@@ -0,0 +1,156 @@
+/**
+ * The MIT License Copyright (c) 2015 Teal Cube Games
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package info.faceland.mint.util;
+
+import io.pixeloutlaw.minecraft.spigot.config.MasterConfiguration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.EntityType;
+
+/**
+ * The mob drop settings from rewards.yml and config.yml, read once so that a mob death does not
+ * have to look anything up by key. Rewards are indexed by entity type and every world section is
+ * read up front; worlds without one get no drops. The last world used is remembered by its UID.
+ */
+public class RewardTable {
+
+  private static final String WORLDS = "config.money-drop-worlds.";
+  private static final WorldRewards NO_REWARDS = new WorldRewards(false, 1.0, 0.0, 0.0, 1D);
+
+  private final double[] rewards;
+  private final boolean distanceCalculation;
+  private final double bombChance;
+  private final double luckyBombChance;
+  private final float bombVelocity;
+  private final int bombMinDrops;
+  private final int bombMaxDrops;
+  private final Map<String, WorldRewards> worlds = new HashMap<>();
+  private UUID lastWorld;
+  private WorldRewards lastWorldRewards;
+
+  /**
+   * @param worldSections the {@code money-drop-worlds} section of config.yml, used for the names
+   *     of the configured worlds; may be null
+   */
+  public RewardTable(MasterConfiguration settings, ConfigurationSection worldSections) {
+    EntityType[] types = EntityType.values();
+    rewards = new double[types.length];
+    for (EntityType type : types) {
+      rewards[type.ordinal()] = settings.getDouble("rewards." + type.name(), 0D);
+    }
+    distanceCalculation = "distance".equalsIgnoreCase(
+        settings.getString("config.money-drop-calculation", "distance"));
+    bombChance = settings.getDouble("config.bit-bomb.chance", 0.002);
+    luckyBombChance = settings.getDouble("config.bit-bomb.lucky-chance", 0.004);
+    bombVelocity = (float) settings.getDouble("config.bit-bomb.velocity", 1);
+    bombMinDrops = settings.getInt("config.bit-bomb.min-drops", 12);
+    bombMaxDrops = settings.getInt("config.bit-bomb.max-drops", 30);
+    if (worldSections != null) {
+      for (String world : worldSections.getKeys(false)) {
+        worlds.put(world, readWorld(settings, world));
+      }
+    }
+  }
+
+  public double getReward(EntityType type) {
+    return rewards[type.ordinal()];
+  }
+
+  public WorldRewards getWorldRewards(World world) {
+    UUID id = world.getUID();
+    if (!id.equals(lastWorld)) {
+      lastWorldRewards = worlds.getOrDefault(world.getName(), NO_REWARDS);
+      lastWorld = id;
+    }
+    return lastWorldRewards;
+  }
+
+  public boolean isDistanceCalculation() {
+    return distanceCalculation;
+  }
+
+  public double getBombChance() {
+    return bombChance;
+  }
+
+  public double getLuckyBombChance() {
+    return luckyBombChance;
+  }
+
+  public float getBombVelocity() {
+    return bombVelocity;
+  }
+
+  public int getBombMinDrops() {
+    return bombMinDrops;
+  }
+
+  public int getBombMaxDrops() {
+    return bombMaxDrops;
+  }
+
+  private static WorldRewards readWorld(MasterConfiguration settings, String world) {
+    String prefix = WORLDS + world + ".";
+    return new WorldRewards(
+        settings.getBoolean(prefix + "enabled", false),
+        settings.getDouble(prefix + "drop-chance", 1.0),
+        settings.getDouble(prefix + "multiplier-per-100-blocks", 0.0),
+        settings.getDouble(prefix + "multiplier-per-100-levels", 0.0),
+        settings.getDouble(prefix + "exponential-bonus", 1D));
+  }
+
+  public static class WorldRewards {
+
+    private final boolean enabled;
+    private final double dropChance;
+    private final double multiplierPer100Blocks;
+    private final double multiplierPer100Levels;
+    private final double exponentialBonus;
+
+    private WorldRewards(boolean enabled, double dropChance, double multiplierPer100Blocks,
+        double multiplierPer100Levels, double exponentialBonus) {
+      this.enabled = enabled;
+      this.dropChance = dropChance;
+      this.multiplierPer100Blocks = multiplierPer100Blocks;
+      this.multiplierPer100Levels = multiplierPer100Levels;
+      this.exponentialBonus = exponentialBonus;
+    }
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public double getDropChance() {
+      return dropChance;
+    }
+
+    public double getMultiplierPer100Blocks() {
+      return multiplierPer100Blocks;
+    }
+
+    public double getMultiplierPer100Levels() {
+      return multiplierPer100Levels;
+    }
+
+    public double getExponentialBonus() {
+      return exponentialBonus;
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/**
+ * The MIT License Copyright (c) 2015 Teal Cube Games
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package info.faceland.mint.util;
+
+import com.tealcube.minecraft.bukkit.shade.google.common.cache.CacheBuilder;
+import com.tealcube.minecraft.bukkit.shade.google.common.cache.CacheLoader;
+import com.tealcube.minecraft.bukkit.shade.google.common.cache.LoadingCache;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+
+/**
+ * Turns the strings Vault hands us, either a UUID or a player name, into a UUID, and UUIDs back
+ * into names for display. Results are cached so a name only costs a player lookup the first time
+ * it is seen; name lookups can block on disk or on Mojang's profile service.
+ */
+public class UuidResolver {
+
+  private static final int MAXIMUM_SIZE = 10000;
+  private static final long EXPIRE_MINUTES = 30;
+
+  private final LoadingCache<String, UUID> cache = CacheBuilder.newBuilder()
+      .maximumSize(MAXIMUM_SIZE)
+      .expireAfterAccess(EXPIRE_MINUTES, TimeUnit.MINUTES)
+      .build(new CacheLoader<String, UUID>() {
+        @Override
+        public UUID load(String key) {
+          return lookup(key);
+        }
+      });
+  private final LoadingCache<UUID, String> names = CacheBuilder.newBuilder()
+      .maximumSize(MAXIMUM_SIZE)
+      .expireAfterAccess(EXPIRE_MINUTES, TimeUnit.MINUTES)
+      .build(new CacheLoader<UUID, String>() {
+        @Override
+        public String load(UUID key) {
+          String name = Bukkit.getOfflinePlayer(key).getName();
+          return name == null ? key.toString() : name;
+        }
+      });
+
+  public UUID resolve(String s) {
+    return cache.getUnchecked(s);
+  }
+
+  /**
+   * The last known name of the given player, or their UUID if the server never saw them.
+   */
+  public String name(UUID uuid) {
+    return names.getUnchecked(uuid);
+  }
+
+  /**
+   * Records the current owner of a name, replacing whatever it resolved to before.
+   */
+  public void remember(String name, UUID uuid) {
+    cache.put(name, uuid);
+    names.put(uuid, name);
+  }
+
+  public void clear() {
+    cache.invalidateAll();
+    names.invalidateAll();
+  }
+
+  private static UUID lookup(String s) {
+    if (s.indexOf('-') >= 0) {
+      try {
+        return UUID.fromString(s);
+      } catch (IllegalArgumentException ignored) {
+        // not a UUID after all, try it as a name
+      }
+    }
+    Player player = Bukkit.getPlayerExact(s);
+    if (player != null) {
+      return player.getUniqueId();
+    }
+    OfflinePlayer cached = Bukkit.getOfflinePlayerIfCached(s);
+    if (cached != null) {
+      return cached.getUniqueId();
+    }
+    return Bukkit.getOfflinePlayer(s).getUniqueId();
+  }
+}
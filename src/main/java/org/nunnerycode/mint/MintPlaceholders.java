@@ -1,17 +1,39 @@
 package org.nunnerycode.mint;
 
-import static org.nunnerycode.mint.MintPlugin.INT_FORMAT;
-
 import com.tealcube.minecraft.bukkit.facecore.utilities.FaceColor;
 import com.tealcube.minecraft.bukkit.shade.apache.commons.lang3.StringUtils;
+import com.tealcube.minecraft.bukkit.shade.google.common.cache.Cache;
+import com.tealcube.minecraft.bukkit.shade.google.common.cache.CacheBuilder;
 import info.faceland.mint.util.MintUtil;
+import java.text.DecimalFormat;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.nunnerycode.mint.accounts.Leaderboard;
+import org.nunnerycode.mint.accounts.Money;
 
+/**
+ * Scoreboards ask for the same few values of every online player many times a second, often off
+ * the main thread. The text of each value is kept per player together with the value it was
+ * formatted from and is only formatted again once the value changes.
+ */
 public class MintPlaceholders extends PlaceholderExpansion {
 
+  private static final ThreadLocal<DecimalFormat> FORMAT =
+      ThreadLocal.withInitial(() -> new DecimalFormat("###,###,###"));
+
+  private enum Value {
+    BALANCE, BANK_BALANCE, PROTECTED_MONEY
+  }
+
+  private final Cache<UUID, PlayerTexts> texts = CacheBuilder.newBuilder()
+      .maximumSize(4096)
+      .expireAfterAccess(5, TimeUnit.MINUTES)
+      .build();
+
   @Override
   public @NotNull String getAuthor() {
     return "Faceguy";
@@ -34,15 +56,113 @@ public class MintPlaceholders extends PlaceholderExpansion {
 
   @Override
   public String onPlaceholderRequest(Player p, @NotNull String placeholder) {
-    if (p == null || StringUtils.isBlank(placeholder)) {
+    if (StringUtils.isBlank(placeholder)) {
       return "";
     }
-    if (placeholder.startsWith("max_protected_money")) {
-      return INT_FORMAT.format(MintUtil.getProtectedCash(p));
+    if (placeholder.startsWith("top_")) {
+      return top(placeholder);
+    }
+    if (p == null) {
+      return "";
+    }
+    boolean formatted = placeholder.endsWith("_formatted");
+    if (placeholder.equals("balance") || placeholder.equals("balance_formatted")) {
+      return text(p, Value.BALANCE, formatted);
     }
     if (placeholder.startsWith("bank_balance")) {
-      return INT_FORMAT.format(MintPlugin.getInstance().getManager().getBankBalance(p.getUniqueId()));
+      return text(p, Value.BANK_BALANCE, formatted);
+    }
+    if (placeholder.startsWith("max_protected_money")) {
+      return text(p, Value.PROTECTED_MONEY, formatted);
+    }
+    if (placeholder.equals("rank")) {
+      int rank = MintPlugin.getInstance().getManager().getLeaderboard().rank(p.getUniqueId());
+      return rank == 0 ? "-" : FORMAT.get().format(rank);
     }
     return null;
   }
+
+  /**
+   * Neither balance is ever created by reading it here, a player without a bank has a bank
+   * balance of 0. Protected money is the amount MintUtil last computed, which stays in place while
+   * a level change or respawn has it recomputed.
+   */
+  private String text(Player player, Value value, boolean formatted) {
+    UUID uuid = player.getUniqueId();
+    double current;
+    switch (value) {
+      case BALANCE:
+        current = Money.toMajor(
+            MintPlugin.getInstance().getManager().getPlayerBalanceOrDefault(uuid, 0L));
+        break;
+      case BANK_BALANCE:
+        current = Money.toMajor(
+            MintPlugin.getInstance().getManager().getBankBalanceOrDefault(uuid, 0L));
+        break;
+      default:
+        current = MintUtil.getProtectedCash(player);
+        break;
+    }
+    PlayerTexts playerTexts = texts.asMap().computeIfAbsent(uuid, key -> new PlayerTexts());
+    int slot = value.ordinal() * 2 + (formatted ? 1 : 0);
+    CachedText cached = playerTexts.texts[slot];
+    if (cached != null && Double.compare(cached.value, current) == 0) {
+      return cached.text;
+    }
+    String text = formatted ? MintPlugin.getInstance().getEconomy().format(current)
+        : FORMAT.get().format(current);
+    playerTexts.texts[slot] = new CachedText(current, text);
+    return text;
+  }
+
+  /**
+   * {@code top_<n>} is "name - balance" of the player ranked n, {@code top_<n>_name} and
+   * {@code top_<n>_balance} are either half alone.
+   */
+  private String top(String placeholder) {
+    String[] parts = placeholder.split("_", 3);
+    int rank;
+    try {
+      rank = Integer.parseInt(parts[1]);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    Leaderboard.Entry entry = MintPlugin.getInstance().getManager().getLeaderboard().get(rank);
+    if (entry == null) {
+      return "";
+    }
+    String name = MintPlugin.getInstance().getEconomy().getUuidResolver().name(entry.getOwner());
+    String balance = FORMAT.get().format(Money.toMajor(entry.getBalance()));
+    if (parts.length == 2) {
+      return name + " - " + balance;
+    }
+    switch (parts[2]) {
+      case "name":
+        return name;
+      case "balance":
+        return balance;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Slots may be replaced by any thread; each one is immutable, so a reader sees either the old
+   * or the new text, and at worst a value is formatted twice.
+   */
+  private static class PlayerTexts {
+
+    private final CachedText[] texts = new CachedText[Value.values().length * 2];
+  }
+
+  private static class CachedText {
+
+    private final double value;
+    private final String text;
+
+    private CachedText(double value, String text) {
+      this.value = value;
+      this.text = text;
+    }
+  }
 }
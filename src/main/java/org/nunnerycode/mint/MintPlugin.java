@@ -18,40 +18,65 @@
  */
 package org.nunnerycode.mint;
 
-import com.tealcube.minecraft.bukkit.bullion.PlayerDeathDropEvent;
 import com.tealcube.minecraft.bukkit.facecore.plugin.FacePlugin;
 import com.tealcube.minecraft.bukkit.shade.acf.PaperCommandManager;
 import info.faceland.mint.MintCommand;
 import info.faceland.mint.MintEconomy;
 import info.faceland.mint.listeners.DeathListener;
 import info.faceland.mint.listeners.MintListener;
+import info.faceland.mint.listeners.MoneyEventCoalescer;
 import info.faceland.mint.managers.MintManager;
+import info.faceland.mint.metrics.CallerProfiler;
+import info.faceland.mint.metrics.MintMetrics;
+import info.faceland.mint.tasks.PickupEngine;
 import info.faceland.mint.util.MintUtil;
+import info.faceland.mint.util.PriceIndex;
 import io.pixeloutlaw.minecraft.spigot.config.MasterConfiguration;
 import io.pixeloutlaw.minecraft.spigot.config.VersionedConfiguration;
 import io.pixeloutlaw.minecraft.spigot.config.VersionedSmartYamlConfiguration;
 import java.io.File;
+import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.logging.Level;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.Bukkit;
 import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 import org.bukkit.event.HandlerList;
 import org.bukkit.plugin.ServicePriority;
+import org.nunnerycode.mint.accounts.AccountSnapshot;
 import org.nunnerycode.mint.accounts.BankAccount;
 import org.nunnerycode.mint.accounts.PlayerAccount;
+import org.nunnerycode.mint.storage.AsyncDataStorage;
+import org.nunnerycode.mint.storage.BinaryDataStorage;
 import org.nunnerycode.mint.storage.DataStorage;
+import org.nunnerycode.mint.storage.JdbcDataStorage;
+import org.nunnerycode.mint.storage.MappedLedger;
+import org.nunnerycode.mint.storage.SqlDialect;
+import org.nunnerycode.mint.storage.TransactionJournal;
 import org.nunnerycode.mint.storage.YamlDataStorage;
 
 public class MintPlugin extends FacePlugin {
 
   private static MintPlugin _INSTANCE;
   public static NamespacedKey moneyKey;
+  public static NamespacedKey valueKey;
+  public static NamespacedKey ownerKey;
+  public static NamespacedKey expiryKey;
 
   private MasterConfiguration settings;
+  private VersionedSmartYamlConfiguration configYAML;
   private MintEconomy economy;
   private MintManager manager;
-  private DataStorage dataStorage;
+  private AsyncDataStorage dataStorage;
+  private TransactionJournal journal;
+  private MappedLedger ledger;
+  private MoneyEventCoalescer eventCoalescer;
+  private PickupEngine pickupEngine;
+  private PriceIndex priceIndex;
+  private final MintMetrics metrics = new MintMetrics();
 
   public static final DecimalFormat INT_FORMAT = new DecimalFormat("###,###,###");
   public static final DecimalFormat DEC_FORMAT = new DecimalFormat("###,###,###.##");
@@ -69,8 +94,11 @@ public class MintPlugin extends FacePlugin {
 
     _INSTANCE = this;
     moneyKey = new NamespacedKey(this, "bullion.moneydrop");
+    valueKey = new NamespacedKey(this, "bullion.value");
+    ownerKey = new NamespacedKey(this, "bullion.owner");
+    expiryKey = new NamespacedKey(this, "bullion.protection-expiry");
 
-    VersionedSmartYamlConfiguration configYAML =
+    configYAML =
         new VersionedSmartYamlConfiguration(new File(getDataFolder(), "config.yml"),
             getResource("config.yml"), VersionedConfiguration.VersionUpdateType.BACKUP_AND_UPDATE);
     if (configYAML.update()) {
@@ -101,6 +129,7 @@ public class MintPlugin extends FacePlugin {
 
     settings = new MasterConfiguration();
     settings.load(configYAML, rewardsYAML, languageYAML, pricesYAML);
+    priceIndex = new PriceIndex(settings, pricesYAML.getConfigurationSection("names"));
 
     manager = new MintManager();
 
@@ -113,28 +142,97 @@ public class MintPlugin extends FacePlugin {
       return;
     }
 
-    dataStorage = new YamlDataStorage(this);
+    DataStorage storage = createDataStorage();
+    dataStorage = new AsyncDataStorage(this, storage);
     dataStorage.initialize();
 
-    for (PlayerAccount account : dataStorage.loadPlayerAccounts()) {
-      manager.setPlayerBalance(account.getOwner(), account.getBalance());
+    journal = null;
+    AccountSnapshot recovered = null;
+    if (settings.getBoolean("config.journal.enabled", true)) {
+      journal = new TransactionJournal(getLogger(), new File(getDataFolder(), "journal").toPath(),
+          settings.getInt("config.journal.commit-interval-ms", 50));
+      try {
+        recovered = journal.recover();
+      } catch (IOException e) {
+        getLogger().log(Level.SEVERE, "Unable to read the transaction journal", e);
+        journal = null;
+        getServer().getPluginManager().disablePlugin(this);
+        return;
+      }
+      journal.setFailureListener(this::journalFailed);
+    }
+
+    ledger = null;
+    boolean loadPlayerAccounts = true;
+    if (settings.getBoolean("config.mapped-ledger", false)) {
+      ledger = new MappedLedger(getLogger(), new File(getDataFolder(), "ledger").toPath());
+      try {
+        ledger.open();
+      } catch (IOException e) {
+        getLogger().log(Level.SEVERE, "Unable to open the balance ledger", e);
+        ledger = null;
+        getServer().getPluginManager().disablePlugin(this);
+        return;
+      }
+      manager.setPlayerLedger(ledger);
+      if (ledger.isEmpty()) {
+        for (PlayerAccount account : dataStorage.loadPlayerAccounts()) {
+          manager.loadPlayerAccount(account);
+        }
+        getLogger().info("Copied " + ledger.size() + " player accounts into the balance ledger");
+      }
+      loadPlayerAccounts = false;
+    }
+
+    boolean lazyAccounts = settings.getBoolean("config.lazy-accounts", false);
+    if (lazyAccounts && !(storage instanceof JdbcDataStorage)) {
+      // file backends parse the whole file anyway, so lazy loading would only add storage reads
+      getLogger().warning("lazy-accounts needs a mysql, sqlite or h2 storage-type, loading every "
+          + "account at startup instead");
+      lazyAccounts = false;
+    }
+    if (lazyAccounts) {
+      manager.setLazyStorage(dataStorage);
+    } else {
+      if (loadPlayerAccounts) {
+        for (PlayerAccount account : dataStorage.loadPlayerAccounts()) {
+          manager.loadPlayerAccount(account);
+        }
+      }
+      for (BankAccount account : dataStorage.loadBankAccounts()) {
+        manager.loadBankAccount(account);
+      }
+    }
+    if (recovered != null && !recovered.isEmpty()) {
+      getLogger().info("Recovered " + recovered.getPlayerAccounts().size() + " player accounts and "
+          + recovered.getBankAccounts().size() + " bank accounts and "
+          + recovered.getRemovedBankAccounts().size()
+          + " bank removals from the transaction journal");
+      manager.recoverAccounts(recovered);
     }
-    for (BankAccount account : dataStorage.loadBankAccounts()) {
-      manager.setBankBalance(account.getOwner(), account.getBalance());
+    manager.setJournal(journal);
+    for (Player player : Bukkit.getOnlinePlayers()) {
+      manager.pinAccount(player.getUniqueId());
     }
 
-    Bukkit.getScheduler().runTaskTimer(this, () -> {
-      dataStorage.savePlayerAccounts(manager.getPlayerAccounts());
-      dataStorage.saveBankAccounts(manager.getBankAccounts());
-    }, 20L * 112, 20L * 300);
+    Bukkit.getScheduler().runTaskTimer(this, this::saveDirtyAccounts, 20L * 112, 20L * 300);
+    long metricsInterval = 20L * settings.getInt("config.metrics-log-interval", 0);
+    if (metricsInterval > 0) {
+      Bukkit.getScheduler().runTaskTimerAsynchronously(this,
+          () -> metrics.report().forEach(getLogger()::info), metricsInterval, metricsInterval);
+    }
 
-    Bukkit.getScheduler().runTaskTimer(this, () -> {
-      for (Player p : Bukkit.getOnlinePlayers()) {
-        PlayerDeathDropEvent e = new PlayerDeathDropEvent(p, 50);
-        Bukkit.getPluginManager().callEvent(e);
-        MintUtil.setProtectedCash(p, e.getAmountProtected());
+    pickupEngine = new PickupEngine(settings.getDouble("config.cash-drop-merge-radius", 1.5),
+        metrics);
+    pickupEngine.runTaskTimer(this, 1L, 1L);
+    for (World world : Bukkit.getWorlds()) {
+      for (Item item : world.getEntitiesByClass(Item.class)) {
+        if (item.getPersistentDataContainer().has(moneyKey)) {
+          MintUtil.restoreDropProtection(item);
+          pickupEngine.track(item);
+        }
       }
-    }, 20L, 20L * 30);
+    }
 
     if (Bukkit.getPluginManager().getPlugin("PlaceholderAPI") != null) {
       new MintPlaceholders().register();
@@ -146,24 +244,92 @@ public class MintPlugin extends FacePlugin {
     Bukkit.getPluginManager().registerEvents(listener, this);
     Bukkit.getPluginManager().registerEvents(deathListener, this);
 
+    eventCoalescer = null;
+    if (settings.getBoolean("config.coalesce-money-events", false)) {
+      eventCoalescer = new MoneyEventCoalescer(metrics);
+      economy.setEventCoalescer(eventCoalescer);
+      Bukkit.getPluginManager().registerEvents(eventCoalescer, this);
+    }
+    if (settings.getBoolean("config.caller-profiling.enabled", false)) {
+      economy.setCallerProfiler(
+          new CallerProfiler(settings.getInt("config.caller-profiling.sample-rate", 64)));
+    }
+
     PaperCommandManager commandManager = new PaperCommandManager(this);
     commandManager.registerCommand(new MintCommand(this));
   }
 
   @Override
   public void disable() {
-    dataStorage.saveBankAccounts(manager.getBankAccounts());
-    dataStorage.savePlayerAccounts(manager.getPlayerAccounts());
+    if (eventCoalescer != null) {
+      eventCoalescer.flush();
+    }
+    saveDirtyAccounts();
     dataStorage.shutdown();
+    if (journal != null) {
+      journal.close();
+    }
+    if (ledger != null) {
+      ledger.close();
+    }
 
     Bukkit.getScheduler().cancelTasks(this);
     HandlerList.unregisterAll(this);
   }
 
+  private DataStorage createDataStorage() {
+    String type = settings.getString("config.storage-type", "yaml");
+    switch (type.toLowerCase()) {
+      case "yaml":
+        return new YamlDataStorage(this);
+      case "binary":
+        return new BinaryDataStorage(this);
+      case "mysql":
+        return new JdbcDataStorage(this, SqlDialect.MYSQL);
+      case "sqlite":
+        return new JdbcDataStorage(this, SqlDialect.SQLITE);
+      case "h2":
+        return new JdbcDataStorage(this, SqlDialect.H2);
+      default:
+        getLogger().warning("Unknown storage-type " + type + ", falling back to yaml");
+        return new YamlDataStorage(this);
+    }
+  }
+
+  private void journalFailed(IOException e) {
+    if (!isEnabled()) {
+      return;
+    }
+    // without the journal only storage protects these changes, so get them there now
+    Bukkit.getScheduler().runTask(this, () -> {
+      getLogger().log(Level.SEVERE, "The transaction journal keeps failing to write and changes "
+          + "are only kept in memory until it recovers, saving accounts now", e);
+      saveDirtyAccounts();
+    });
+  }
+
+  private void saveDirtyAccounts() {
+    MintManager mintManager = manager;
+    AccountSnapshot snapshot = mintManager.snapshot();
+    dataStorage.saveAccountsAsync(snapshot.getPlayerAccounts(), snapshot.getBankAccounts(),
+        snapshot.getRemovedBankAccounts()).thenAccept(saved -> {
+          if (!saved) {
+            getLogger().warning("Unable to save " + snapshot.getPlayerAccounts().size()
+                + " player accounts and " + snapshot.getBankAccounts().size()
+                + " bank accounts, retrying next save");
+          }
+          mintManager.completeSnapshot(snapshot, saved);
+        });
+  }
+
   public MasterConfiguration getSettings() {
     return settings;
   }
 
+  public VersionedSmartYamlConfiguration getConfigYAML() {
+    return configYAML;
+  }
+
   public MintEconomy getEconomy() {
     return economy;
   }
@@ -171,4 +337,16 @@ public class MintPlugin extends FacePlugin {
   public MintManager getManager() {
     return manager;
   }
+
+  public PickupEngine getPickupEngine() {
+    return pickupEngine;
+  }
+
+  public PriceIndex getPriceIndex() {
+    return priceIndex;
+  }
+
+  public MintMetrics getMetrics() {
+    return metrics;
+  }
 }
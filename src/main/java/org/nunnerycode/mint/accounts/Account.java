@@ -28,8 +28,11 @@ public interface Account {
 
     UUID getOwner();
 
-    double getBalance();
+    /**
+     * The balance in minor units, see {@link Money}.
+     */
+    long getBalance();
 
-    void setBalance(double newBalance);
+    void setBalance(long newBalance);
 
 }
@@ -0,0 +1,73 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.nunnerycode.mint.accounts;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Copies of the accounts changed between two saves and the owners of the bank accounts removed
+ * meanwhile, plus the number of the snapshot and the journal segment that holds the matching
+ * transactions, or -1 when journaling is off.
+ */
+public class AccountSnapshot {
+    private final Set<PlayerAccount> playerAccounts;
+    private final Set<BankAccount> bankAccounts;
+    private final Set<UUID> removedBankAccounts;
+    private final long number;
+    private final long journalSegment;
+
+    public AccountSnapshot(Set<PlayerAccount> playerAccounts, Set<BankAccount> bankAccounts,
+                           Set<UUID> removedBankAccounts, long number, long journalSegment) {
+        this.playerAccounts = Collections.unmodifiableSet(playerAccounts);
+        this.bankAccounts = Collections.unmodifiableSet(bankAccounts);
+        this.removedBankAccounts = Collections.unmodifiableSet(removedBankAccounts);
+        this.number = number;
+        this.journalSegment = journalSegment;
+    }
+
+    public Set<PlayerAccount> getPlayerAccounts() {
+        return playerAccounts;
+    }
+
+    public Set<BankAccount> getBankAccounts() {
+        return bankAccounts;
+    }
+
+    public Set<UUID> getRemovedBankAccounts() {
+        return removedBankAccounts;
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    public long getJournalSegment() {
+        return journalSegment;
+    }
+
+    public boolean isEmpty() {
+        return playerAccounts.isEmpty() && bankAccounts.isEmpty() && removedBankAccounts.isEmpty();
+    }
+}
@@ -0,0 +1,509 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.nunnerycode.mint.accounts;
+
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Balances keyed by UUID in an open-addressed table of primitive arrays, so looking up or
+ * changing a balance allocates nothing.
+ * <p>
+ * Each slot holds the two halves of the UUID, the balance in minor units and a state byte that
+ * also records whether the balance changed since it was last drained. Lookups probe linearly and
+ * run under an optimistic read, falling back to a read lock only when a writer got in the way.
+ * Removal shifts later entries back instead of leaving tombstones.
+ * <p>
+ * Every change that marks a balance dirty is reported to the change listener while the write
+ * lock is still held, so the listener sees the changes of an account in the order they happened.
+ * Balances added without marking them dirty, such as those read from storage, are reported to the
+ * load listener the same way.
+ */
+public class BalanceTable {
+    private static final byte EMPTY = 0;
+    private static final byte CLEAN = 1;
+    private static final byte DIRTY = 2;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final StampedLock lock = new StampedLock();
+    private final ObjLongConsumer<UUID> changeListener;
+    private final ObjLongConsumer<UUID> loadListener;
+    private Slots slots;
+    private int size;
+    private volatile long generation;
+
+    public BalanceTable() {
+        this(0, (uuid, balance) -> {
+        });
+    }
+
+    public BalanceTable(int expectedSize, ObjLongConsumer<UUID> changeListener) {
+        this(expectedSize, changeListener, (uuid, balance) -> {
+        });
+    }
+
+    public BalanceTable(int expectedSize, ObjLongConsumer<UUID> changeListener,
+            ObjLongConsumer<UUID> loadListener) {
+        this.slots = new Slots(capacityFor(expectedSize));
+        this.changeListener = changeListener;
+        this.loadListener = loadListener;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Counts removals. A balance read from storage while this stayed the same cannot be older than
+     * what the table last held for that account.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    public boolean contains(UUID uuid) {
+        long mostBits = uuid.getMostSignificantBits();
+        long leastBits = uuid.getLeastSignificantBits();
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            boolean found = slots.indexOf(mostBits, leastBits) >= 0;
+            if (lock.validate(stamp)) {
+                return found;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return slots.indexOf(mostBits, leastBits) >= 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the balance of the given account, or {@code defaultBalance} if it is missing, without
+     * adding it.
+     */
+    public long getOrDefault(UUID uuid, long defaultBalance) {
+        long mostBits = uuid.getMostSignificantBits();
+        long leastBits = uuid.getLeastSignificantBits();
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Slots current = slots;
+            int index = current.indexOf(mostBits, leastBits);
+            long balance = index < 0 ? defaultBalance : current.balances[index];
+            if (lock.validate(stamp)) {
+                return balance;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            int index = slots.indexOf(mostBits, leastBits);
+            return index < 0 ? defaultBalance : slots.balances[index];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the balance of the given account. A missing account is added with the balance the
+     * loader returns, which runs without holding the table lock and may be called more than once
+     * if entries are removed meanwhile.
+     */
+    public long computeIfAbsent(UUID uuid, ToLongFunction<UUID> loader) {
+        long mostBits = uuid.getMostSignificantBits();
+        long leastBits = uuid.getLeastSignificantBits();
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Slots current = slots;
+            int index = current.indexOf(mostBits, leastBits);
+            long balance = index < 0 ? 0L : current.balances[index];
+            if (lock.validate(stamp) && index >= 0) {
+                return balance;
+            }
+        }
+        while (true) {
+            long loadGeneration;
+            stamp = lock.readLock();
+            try {
+                int index = slots.indexOf(mostBits, leastBits);
+                if (index >= 0) {
+                    return slots.balances[index];
+                }
+                loadGeneration = generation;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            long loaded = loader.applyAsLong(uuid);
+            stamp = lock.writeLock();
+            try {
+                int index = slots.indexOf(mostBits, leastBits);
+                if (index >= 0) {
+                    return slots.balances[index];
+                }
+                if (loadGeneration == generation) {
+                    insert(mostBits, leastBits, loaded, CLEAN);
+                    loadListener.accept(uuid, loaded);
+                    return loaded;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Adds a balance read from storage unless the account is already present. Returns false,
+     * adding nothing, if entries were removed since {@code loadGeneration} was read, in which case
+     * the balance should be read again.
+     */
+    public boolean loadIfAbsent(UUID uuid, long balance, long loadGeneration) {
+        long mostBits = uuid.getMostSignificantBits();
+        long leastBits = uuid.getLeastSignificantBits();
+        long stamp = lock.writeLock();
+        try {
+            if (slots.indexOf(mostBits, leastBits) >= 0) {
+                return true;
+            }
+            if (loadGeneration != generation) {
+                return false;
+            }
+            insert(mostBits, leastBits, balance, CLEAN);
+            loadListener.accept(uuid, balance);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sets a balance, adding the account if needed. A dirty balance is handed out by the next
+     * {@link #drainDirty(ObjLongConsumer)}.
+     */
+    public void put(UUID uuid, long balance, boolean dirty) {
+        long mostBits = uuid.getMostSignificantBits();
+        long leastBits = uuid.getLeastSignificantBits();
+        long stamp = lock.writeLock();
+        try {
+            int index = slots.indexOf(mostBits, leastBits);
+            if (index >= 0) {
+                slots.balances[index] = balance;
+                if (dirty) {
+                    slots.states[index] = DIRTY;
+                }
+            } else {
+                insert(mostBits, leastBits, balance, dirty ? DIRTY : CLEAN);
+            }
+            (dirty ? changeListener : loadListener).accept(uuid, balance);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds an account with the given balance unless it is already present. Returns true only if
+     * this call added it.
+     */
+    public boolean putIfAbsent(UUID uuid, long balance, boolean dirty) {
+        long mostBits = uuid.getMostSignificantBits();
+        long leastBits = uuid.getLeastSignificantBits();
+        long stamp = lock.writeLock();
+        try {
+            if (slots.indexOf(mostBits, leastBits) >= 0) {
+                return false;
+            }
+            insert(mostBits, leastBits, balance, dirty ? DIRTY : CLEAN);
+            (dirty ? changeListener : loadListener).accept(uuid, balance);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds {@code delta} to a balance in one step, loading the account first if it is missing.
+     * A negative delta that would leave the balance below {@code floor} changes nothing. Returns
+     * the balance before the change, so the change was refused exactly when
+     * {@code delta < 0 && previous + delta < floor}.
+     *
+     * @throws ArithmeticException if the new balance would overflow, leaving the balance unchanged
+     */
+    public long add(UUID uuid, long delta, long floor, ToLongFunction<UUID> loader) {
+        long mostBits = uuid.getMostSignificantBits();
+        long leastBits = uuid.getLeastSignificantBits();
+        while (true) {
+            long stamp = lock.writeLock();
+            try {
+                int index = slots.indexOf(mostBits, leastBits);
+                if (index >= 0) {
+                    long previous = slots.balances[index];
+                    long updated = Math.addExact(previous, delta);
+                    if (delta >= 0 || updated >= floor) {
+                        slots.balances[index] = updated;
+                        slots.states[index] = DIRTY;
+                        changeListener.accept(uuid, updated);
+                    }
+                    return previous;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            computeIfAbsent(uuid, loader);
+        }
+    }
+
+    /**
+     * Sets a balance only if it currently equals {@code expected}, loading the account first if it
+     * is missing.
+     */
+    public boolean compareAndSet(UUID uuid, long expected, long update, ToLongFunction<UUID> loader) {
+        long mostBits = uuid.getMostSignificantBits();
+        long leastBits = uuid.getLeastSignificantBits();
+        while (true) {
+            long stamp = lock.writeLock();
+            try {
+                int index = slots.indexOf(mostBits, leastBits);
+                if (index >= 0) {
+                    if (slots.balances[index] != expected) {
+                        return false;
+                    }
+                    slots.balances[index] = update;
+                    slots.states[index] = DIRTY;
+                    changeListener.accept(uuid, update);
+                    return true;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            computeIfAbsent(uuid, loader);
+        }
+    }
+
+    public void markDirty(UUID uuid) {
+        long stamp = lock.writeLock();
+        try {
+            int index = slots.indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if (index >= 0) {
+                slots.states[index] = DIRTY;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean remove(UUID uuid) {
+        long stamp = lock.writeLock();
+        try {
+            int index = slots.indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if (index < 0) {
+                return false;
+            }
+            removeAt(index);
+            generation++;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void forEach(ObjLongConsumer<UUID> action) {
+        long stamp = lock.readLock();
+        try {
+            Slots current = slots;
+            for (int index = 0; index < current.states.length; index++) {
+                if (current.states[index] != EMPTY) {
+                    action.accept(current.uuidAt(index), current.balances[index]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Hands every balance changed since the last drain to the given action and marks it unchanged.
+     */
+    public void drainDirty(ObjLongConsumer<UUID> action) {
+        long stamp = lock.writeLock();
+        try {
+            Slots current = slots;
+            for (int index = 0; index < current.states.length; index++) {
+                if (current.states[index] == DIRTY) {
+                    current.states[index] = CLEAN;
+                    action.accept(current.uuidAt(index), current.balances[index]);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes every unchanged balance the given predicate does not keep, shrinking the table to fit
+     * what is left.
+     */
+    public void evictClean(Predicate<UUID> keep) {
+        long stamp = lock.writeLock();
+        try {
+            Slots current = slots;
+            boolean[] evicted = new boolean[current.states.length];
+            int remaining = 0;
+            for (int index = 0; index < current.states.length; index++) {
+                byte state = current.states[index];
+                if (state == EMPTY) {
+                    continue;
+                }
+                if (state == CLEAN && !keep.test(current.uuidAt(index))) {
+                    evicted[index] = true;
+                } else {
+                    remaining++;
+                }
+            }
+            if (remaining == size) {
+                return;
+            }
+            Slots resized = new Slots(capacityFor(remaining));
+            for (int index = 0; index < current.states.length; index++) {
+                if (current.states[index] != EMPTY && !evicted[index]) {
+                    resized.insert(current.mostBits[index], current.leastBits[index], current.balances[index],
+                            current.states[index]);
+                }
+            }
+            slots = resized;
+            size = remaining;
+            generation++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void insert(long mostBits, long leastBits, long balance, byte state) {
+        if (size + 1 > slots.threshold) {
+            Slots current = slots;
+            if (current.states.length == MAX_CAPACITY) {
+                throw new IllegalStateException("balance table is full");
+            }
+            Slots resized = new Slots(current.states.length << 1);
+            for (int index = 0; index < current.states.length; index++) {
+                if (current.states[index] != EMPTY) {
+                    resized.insert(current.mostBits[index], current.leastBits[index], current.balances[index],
+                            current.states[index]);
+                }
+            }
+            slots = resized;
+        }
+        slots.insert(mostBits, leastBits, balance, state);
+        size++;
+    }
+
+    private void removeAt(int index) {
+        Slots current = slots;
+        int mask = current.mask;
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (current.states[next] != EMPTY) {
+            int home = hash(current.mostBits[next], current.leastBits[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                current.mostBits[hole] = current.mostBits[next];
+                current.leastBits[hole] = current.leastBits[next];
+                current.balances[hole] = current.balances[next];
+                current.states[hole] = current.states[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        current.states[hole] = EMPTY;
+        size--;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 4 / 3 + 1);
+        if (needed >= MAX_CAPACITY) {
+            return MAX_CAPACITY;
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    private static int hash(long mostBits, long leastBits) {
+        long h = mostBits ^ Long.rotateLeft(leastBits, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static final class Slots {
+        private final long[] mostBits;
+        private final long[] leastBits;
+        private final long[] balances;
+        private final byte[] states;
+        private final int mask;
+        private final int threshold;
+
+        private Slots(int capacity) {
+            this.mostBits = new long[capacity];
+            this.leastBits = new long[capacity];
+            this.balances = new long[capacity];
+            this.states = new byte[capacity];
+            this.mask = capacity - 1;
+            this.threshold = capacity == MAX_CAPACITY ? capacity - 1 : capacity / 4 * 3;
+        }
+
+        private int indexOf(long msb, long lsb) {
+            int index = hash(msb, lsb) & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                if (states[index] == EMPTY) {
+                    return -1;
+                }
+                if (mostBits[index] == msb && leastBits[index] == lsb) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void insert(long msb, long lsb, long balance, byte state) {
+            int index = hash(msb, lsb) & mask;
+            while (states[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            mostBits[index] = msb;
+            leastBits[index] = lsb;
+            balances[index] = balance;
+            states[index] = state;
+        }
+
+        private UUID uuidAt(int index) {
+            return new UUID(mostBits[index], leastBits[index]);
+        }
+    }
+}
@@ -26,13 +26,13 @@ import java.util.UUID;
 
 public class BankAccount implements Account {
     private final UUID owner;
-    private double balance;
+    private long balance;
 
     public BankAccount(UUID owner) {
-        this(owner, 0D);
+        this(owner, 0L);
     }
 
-    public BankAccount(UUID owner, double balance) {
+    public BankAccount(UUID owner, long balance) {
         this.owner = owner;
         this.balance = balance;
     }
@@ -43,12 +43,12 @@ public class BankAccount implements Account {
     }
 
     @Override
-    public double getBalance() {
+    public long getBalance() {
         return balance;
     }
 
     @Override
-    public void setBalance(double newBalance) {
+    public void setBalance(long newBalance) {
         this.balance = newBalance;
     }
 
@@ -63,17 +63,14 @@ public class BankAccount implements Account {
 
         BankAccount that = (BankAccount) o;
 
-        return Double.compare(that.balance, balance) == 0 &&
+        return that.balance == balance &&
                 !(owner != null ? !owner.equals(that.owner) : that.owner != null);
     }
 
     @Override
     public int hashCode() {
-        int result;
-        long temp;
-        result = owner != null ? owner.hashCode() : 0;
-        temp = Double.doubleToLongBits(balance);
-        result = 31 * result + (int) (temp ^ (temp >>> 32));
+        int result = owner != null ? owner.hashCode() : 0;
+        result = 31 * result + Long.hashCode(balance);
         return result;
     }
 }
@@ -0,0 +1,476 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.nunnerycode.mint.accounts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ranks owners by everything they have, wallet and bank together, richest first.
+ * <p>
+ * The ranking is a treap whose nodes also count the nodes below them, so a balance change moves
+ * one node in O(log n), and finding an owner's rank or the owner at a given rank is O(log n)
+ * without looking at any other account. Owners with the same balance are ordered by UUID. Owners
+ * with nothing are not ranked and not kept at all.
+ * <p>
+ * Balance changes are called from inside the economy's own locks, so they only record the latest
+ * balance per account in one of a few primitive hash tables, split by account so that unrelated
+ * changes rarely wait on each other. The treap catches up on them the next time it is read. Every
+ * balance of an account must be reported in the order it was set, which holds as long as each one
+ * is reported while holding the lock it was set under.
+ */
+public class Leaderboard {
+    private static final int PENDING_SEGMENTS = 16;
+
+    private final Pending[] pending = new Pending[PENDING_SEGMENTS];
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Node> nodes = new HashMap<>();
+    private final Random random = new Random();
+    private Node root;
+    private Node splitLeft;
+    private Node splitRight;
+    private volatile boolean hasPending;
+
+    public Leaderboard() {
+        for (int i = 0; i < pending.length; i++) {
+            pending[i] = new Pending();
+        }
+    }
+
+    public void setPlayerBalance(UUID uuid, long balance) {
+        queue(uuid, balance, false);
+    }
+
+    public void setBankBalance(UUID uuid, long balance) {
+        queue(uuid, balance, true);
+    }
+
+    /**
+     * Returns the number of ranked owners.
+     */
+    public int size() {
+        applyPending();
+        lock.readLock().lock();
+        try {
+            return size(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the 1-based rank of the given owner, or 0 if they have nothing.
+     */
+    public int rank(UUID uuid) {
+        applyPending();
+        lock.readLock().lock();
+        try {
+            Node node = nodes.get(uuid);
+            if (node == null) {
+                return 0;
+            }
+            int rank = 0;
+            Node current = root;
+            while (current != node) {
+                if (before(node, current)) {
+                    current = current.left;
+                } else {
+                    rank += size(current.left) + 1;
+                    current = current.right;
+                }
+            }
+            return rank + size(node.left) + 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the owner at the given 1-based rank, or null if there are fewer owners.
+     */
+    public Entry get(int rank) {
+        List<Entry> entries = top(rank - 1, 1);
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    /**
+     * Returns up to {@code limit} owners starting at the 0-based position {@code offset}, in rank
+     * order.
+     */
+    public List<Entry> top(int offset, int limit) {
+        if (offset < 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        applyPending();
+        lock.readLock().lock();
+        try {
+            List<Entry> entries = new ArrayList<>(Math.min(limit, size(root)));
+            collect(root, 0, offset, (long) offset + limit, entries);
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void queue(UUID uuid, long balance, boolean bank) {
+        long mostBits = uuid.getMostSignificantBits();
+        long leastBits = uuid.getLeastSignificantBits();
+        int hash = hash(mostBits, leastBits);
+        Pending segment = pending[hash >>> 28];
+        synchronized (segment) {
+            segment.queued.put(mostBits, leastBits, hash, balance, bank);
+        }
+        hasPending = true;
+    }
+
+    private void applyPending() {
+        if (!hasPending) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            // cleared first, so a balance queued after its segment was taken sets it again
+            hasPending = false;
+            for (Pending segment : pending) {
+                Batch batch;
+                synchronized (segment) {
+                    batch = segment.queued;
+                    if (batch.size == 0) {
+                        continue;
+                    }
+                    segment.queued = segment.draining;
+                    segment.draining = batch;
+                }
+                for (int i = 0; i < batch.size; i++) {
+                    int index = batch.order[i];
+                    UUID uuid = new UUID(batch.mostBits[index], batch.leastBits[index]);
+                    byte kinds = batch.kinds[index];
+                    if ((kinds & Batch.PLAYER) != 0) {
+                        update(uuid, batch.players[index], false);
+                    }
+                    if ((kinds & Batch.BANK) != 0) {
+                        update(uuid, batch.banks[index], true);
+                    }
+                }
+                batch.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void update(UUID uuid, long balance, boolean bank) {
+        Node node = nodes.get(uuid);
+        if (node == null) {
+            if (balance == 0L) {
+                return;
+            }
+            node = new Node(uuid, random.nextInt());
+            nodes.put(uuid, node);
+        } else {
+            if ((bank ? node.bank : node.player) == balance) {
+                return;
+            }
+            if (node.total > 0L) {
+                root = remove(root, node);
+            }
+        }
+        if (bank) {
+            node.bank = balance;
+        } else {
+            node.player = balance;
+        }
+        if (node.player == 0L && node.bank == 0L) {
+            nodes.remove(uuid);
+            return;
+        }
+        node.total = saturatedAdd(node.player, node.bank);
+        if (node.total > 0L) {
+            root = insert(root, node);
+        }
+    }
+
+    private void collect(Node node, int first, int from, long to, List<Entry> entries) {
+        if (node == null || first >= to || first + node.size <= from) {
+            return;
+        }
+        collect(node.left, first, from, to, entries);
+        int position = first + size(node.left);
+        if (position >= from && position < to) {
+            entries.add(new Entry(node.owner, node.total, position + 1));
+        }
+        collect(node.right, position + 1, from, to, entries);
+    }
+
+    private Node insert(Node tree, Node node) {
+        if (tree == null) {
+            node.left = null;
+            node.right = null;
+            node.size = 1;
+            return node;
+        }
+        if (node.priority > tree.priority) {
+            split(tree, node);
+            node.left = splitLeft;
+            node.right = splitRight;
+            resize(node);
+            return node;
+        }
+        if (before(node, tree)) {
+            tree.left = insert(tree.left, node);
+        } else {
+            tree.right = insert(tree.right, node);
+        }
+        resize(tree);
+        return tree;
+    }
+
+    private Node remove(Node tree, Node node) {
+        if (tree == node) {
+            return merge(tree.left, tree.right);
+        }
+        if (before(node, tree)) {
+            tree.left = remove(tree.left, node);
+        } else {
+            tree.right = remove(tree.right, node);
+        }
+        resize(tree);
+        return tree;
+    }
+
+    /**
+     * Splits the tree into the nodes ranked before {@code key}, left in {@link #splitLeft}, and
+     * the rest, left in {@link #splitRight}.
+     */
+    private void split(Node tree, Node key) {
+        if (tree == null) {
+            splitLeft = null;
+            splitRight = null;
+            return;
+        }
+        if (before(tree, key)) {
+            split(tree.right, key);
+            tree.right = splitLeft;
+            resize(tree);
+            splitLeft = tree;
+        } else {
+            split(tree.left, key);
+            tree.left = splitRight;
+            resize(tree);
+            splitRight = tree;
+        }
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            resize(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        resize(right);
+        return right;
+    }
+
+    private static boolean before(Node a, Node b) {
+        if (a.total != b.total) {
+            return a.total > b.total;
+        }
+        int compare = Long.compare(a.owner.getMostSignificantBits(), b.owner.getMostSignificantBits());
+        if (compare == 0) {
+            compare = Long.compare(a.owner.getLeastSignificantBits(), b.owner.getLeastSignificantBits());
+        }
+        return compare < 0;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void resize(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private static int hash(long mostBits, long leastBits) {
+        long h = mostBits ^ Long.rotateLeft(leastBits, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        if (((a ^ sum) & (b ^ sum)) < 0) {
+            return a < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return sum;
+    }
+
+    private static class Node {
+        private final UUID owner;
+        private final int priority;
+        private long player;
+        private long bank;
+        private long total;
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        private Node(UUID owner, int priority) {
+            this.owner = owner;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * One segment of the pending balances: the batch balances are queued into and a spare one that
+     * is swapped in while the other is applied, so that queueing a balance allocates nothing.
+     */
+    private static final class Pending {
+        private Batch queued = new Batch();
+        private Batch draining = new Batch();
+    }
+
+    /**
+     * The latest player and bank balance per account, in open addressing arrays. The slots in use
+     * are also listed in {@link #order}, so a batch is applied and cleared without scanning it.
+     */
+    private static final class Batch {
+        private static final byte PLAYER = 1;
+        private static final byte BANK = 2;
+        private static final int MIN_CAPACITY = 16;
+
+        private long[] mostBits = new long[MIN_CAPACITY];
+        private long[] leastBits = new long[MIN_CAPACITY];
+        private long[] players = new long[MIN_CAPACITY];
+        private long[] banks = new long[MIN_CAPACITY];
+        private byte[] kinds = new byte[MIN_CAPACITY];
+        private int[] order = new int[MIN_CAPACITY / 4 * 3];
+        private int size;
+
+        private void put(long msb, long lsb, int hash, long balance, boolean bank) {
+            int mask = kinds.length - 1;
+            int index = hash & mask;
+            while (kinds[index] != 0 && (mostBits[index] != msb || leastBits[index] != lsb)) {
+                index = (index + 1) & mask;
+            }
+            if (kinds[index] == 0) {
+                if (size == order.length) {
+                    grow();
+                    put(msb, lsb, hash, balance, bank);
+                    return;
+                }
+                mostBits[index] = msb;
+                leastBits[index] = lsb;
+                order[size++] = index;
+            }
+            if (bank) {
+                banks[index] = balance;
+                kinds[index] |= BANK;
+            } else {
+                players[index] = balance;
+                kinds[index] |= PLAYER;
+            }
+        }
+
+        private void grow() {
+            long[] oldMostBits = mostBits;
+            long[] oldLeastBits = leastBits;
+            long[] oldPlayers = players;
+            long[] oldBanks = banks;
+            byte[] oldKinds = kinds;
+            int[] oldOrder = order;
+            int oldSize = size;
+            int capacity = oldKinds.length << 1;
+            mostBits = new long[capacity];
+            leastBits = new long[capacity];
+            players = new long[capacity];
+            banks = new long[capacity];
+            kinds = new byte[capacity];
+            order = new int[capacity / 4 * 3];
+            size = 0;
+            int mask = capacity - 1;
+            for (int i = 0; i < oldSize; i++) {
+                int old = oldOrder[i];
+                int index = hash(oldMostBits[old], oldLeastBits[old]) & mask;
+                while (kinds[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                mostBits[index] = oldMostBits[old];
+                leastBits[index] = oldLeastBits[old];
+                players[index] = oldPlayers[old];
+                banks[index] = oldBanks[old];
+                kinds[index] = oldKinds[old];
+                order[size++] = index;
+            }
+        }
+
+        private void clear() {
+            for (int i = 0; i < size; i++) {
+                kinds[order[i]] = 0;
+            }
+            size = 0;
+        }
+    }
+
+    public static final class Entry {
+        private final UUID owner;
+        private final long balance;
+        private final int rank;
+
+        private Entry(UUID owner, long balance, int rank) {
+            this.owner = owner;
+            this.balance = balance;
+            this.rank = rank;
+        }
+
+        public UUID getOwner() {
+            return owner;
+        }
+
+        /**
+         * Wallet and bank together, in minor units.
+         */
+        public long getBalance() {
+            return balance;
+        }
+
+        public int getRank() {
+            return rank;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.nunnerycode.mint.accounts;
+
+/**
+ * Balances are kept as a whole number of minor units, {@link #SCALE} to one unit of currency, so
+ * adding and subtracting them is exact. Amounts only become doubles where Vault or a file format
+ * needs them to be.
+ */
+public final class Money {
+    public static final int SCALE = 100;
+
+    private static final double LIMIT = Long.MAX_VALUE / (double) SCALE;
+
+    private Money() {
+        // utility class
+    }
+
+    /**
+     * Converts an amount of currency to minor units, rounding to the nearest minor unit.
+     *
+     * @throws ArithmeticException if the amount is not a number or does not fit in a long
+     */
+    public static long toMinor(double amount) {
+        if (Double.isNaN(amount) || amount >= LIMIT || amount <= -LIMIT) {
+            throw new ArithmeticException("amount out of range: " + amount);
+        }
+        return Math.round(amount * SCALE);
+    }
+
+    public static double toMajor(long minor) {
+        return minor / (double) SCALE;
+    }
+}
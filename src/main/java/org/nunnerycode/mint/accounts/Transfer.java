@@ -0,0 +1,85 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.nunnerycode.mint.accounts;
+
+import com.tealcube.minecraft.bukkit.shade.apache.commons.lang3.Validate;
+import java.util.UUID;
+
+/**
+ * Moves an amount, in minor units, from one account to another. Either account can be a player
+ * account or a bank account.
+ */
+public final class Transfer {
+    private final UUID from;
+    private final boolean fromBank;
+    private final UUID to;
+    private final boolean toBank;
+    private final long amount;
+
+    private Transfer(UUID from, boolean fromBank, UUID to, boolean toBank, long amount) {
+        Validate.notNull(from, "from cannot be null");
+        Validate.notNull(to, "to cannot be null");
+        Validate.isTrue(amount > 0, "amount must be positive");
+        this.from = from;
+        this.fromBank = fromBank;
+        this.to = to;
+        this.toBank = toBank;
+        this.amount = amount;
+    }
+
+    public static Transfer betweenPlayers(UUID from, UUID to, long amount) {
+        return new Transfer(from, false, to, false, amount);
+    }
+
+    public static Transfer toBank(UUID owner, long amount) {
+        return new Transfer(owner, false, owner, true, amount);
+    }
+
+    public static Transfer fromBank(UUID owner, long amount) {
+        return new Transfer(owner, true, owner, false, amount);
+    }
+
+    public static Transfer of(UUID from, boolean fromBank, UUID to, boolean toBank, long amount) {
+        return new Transfer(from, fromBank, to, toBank, amount);
+    }
+
+    public UUID getFrom() {
+        return from;
+    }
+
+    public boolean isFromBank() {
+        return fromBank;
+    }
+
+    public UUID getTo() {
+        return to;
+    }
+
+    public boolean isToBank() {
+        return toBank;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+}
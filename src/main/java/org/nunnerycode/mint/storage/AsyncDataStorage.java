@@ -0,0 +1,193 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.nunnerycode.mint.storage;
+
+import com.tealcube.minecraft.bukkit.shade.apache.commons.lang3.Validate;
+import com.tealcube.minecraft.bukkit.shade.google.common.base.Optional;
+import info.faceland.mint.metrics.MintMetrics.Timer;
+import org.nunnerycode.mint.MintPlugin;
+import org.nunnerycode.mint.accounts.BankAccount;
+import org.nunnerycode.mint.accounts.PlayerAccount;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Write-behind wrapper around another {@link DataStorage}. Saves are queued on a single
+ * background thread and return immediately, so callers must only pass account copies that
+ * nothing else will modify. Bulk loads run on the same thread and therefore see every queued save.
+ * <p>
+ * Single account loads skip the queue and run on the caller's thread. They are only used for
+ * accounts that are not held in memory, which are either new or were unloaded after their last
+ * save completed, so no queued save can be newer than what the wrapped storage returns.
+ */
+public class AsyncDataStorage implements DataStorage {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+    private final MintPlugin plugin;
+    private final DataStorage delegate;
+    private final ExecutorService executor;
+
+    public AsyncDataStorage(MintPlugin plugin, DataStorage delegate) {
+        this.plugin = plugin;
+        this.delegate = delegate;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Bullion Storage");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void initialize() {
+        call(() -> {
+            delegate.initialize();
+            return null;
+        });
+    }
+
+    /**
+     * Runs every queued save, then shuts the wrapped storage down on the calling thread.
+     */
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                plugin.getLogger().severe("Timed out waiting for queued account saves");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            plugin.getLogger().severe("Interrupted while waiting for queued account saves");
+        }
+        delegate.shutdown();
+    }
+
+    @Override
+    public Optional<PlayerAccount> loadPlayerAccount(UUID uuid) {
+        return delegate.loadPlayerAccount(uuid);
+    }
+
+    @Override
+    public Optional<BankAccount> loadBankAccount(UUID uuid) {
+        return delegate.loadBankAccount(uuid);
+    }
+
+    @Override
+    public boolean savePlayerAccount(PlayerAccount account) {
+        Validate.notNull(account, "account cannot be null");
+        return saveAccounts(Collections.singleton(account), Collections.<BankAccount>emptySet(),
+                Collections.<UUID>emptySet());
+    }
+
+    @Override
+    public boolean saveBankAccount(BankAccount account) {
+        Validate.notNull(account, "account cannot be null");
+        return saveAccounts(Collections.<PlayerAccount>emptySet(), Collections.singleton(account),
+                Collections.<UUID>emptySet());
+    }
+
+    @Override
+    public Set<PlayerAccount> loadPlayerAccounts() {
+        return call(delegate::loadPlayerAccounts);
+    }
+
+    @Override
+    public Set<BankAccount> loadBankAccounts() {
+        return call(delegate::loadBankAccounts);
+    }
+
+    @Override
+    public boolean savePlayerAccounts(Set<PlayerAccount> accounts) {
+        return saveAccounts(accounts, Collections.<BankAccount>emptySet(), Collections.<UUID>emptySet());
+    }
+
+    @Override
+    public boolean saveBankAccounts(Set<BankAccount> accounts) {
+        return saveAccounts(Collections.<PlayerAccount>emptySet(), accounts, Collections.<UUID>emptySet());
+    }
+
+    /**
+     * Queues the accounts for saving and returns without waiting for the result.
+     */
+    @Override
+    public boolean saveAccounts(Set<PlayerAccount> playerAccounts, Set<BankAccount> bankAccounts,
+                                Set<UUID> removedBankAccounts) {
+        saveAccountsAsync(playerAccounts, bankAccounts, removedBankAccounts);
+        return true;
+    }
+
+    /**
+     * Queues the accounts for saving. The returned future completes on the storage thread with
+     * whether the wrapped storage saved them.
+     */
+    public CompletableFuture<Boolean> saveAccountsAsync(Set<PlayerAccount> playerAccounts,
+                                                        Set<BankAccount> bankAccounts,
+                                                        Set<UUID> removedBankAccounts) {
+        Validate.notNull(playerAccounts, "playerAccounts cannot be null");
+        Validate.notNull(bankAccounts, "bankAccounts cannot be null");
+        Validate.notNull(removedBankAccounts, "removedBankAccounts cannot be null");
+        if (playerAccounts.isEmpty() && bankAccounts.isEmpty() && removedBankAccounts.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                boolean saved;
+                long start = System.nanoTime();
+                try {
+                    saved = delegate.saveAccounts(playerAccounts, bankAccounts, removedBankAccounts);
+                } catch (RuntimeException e) {
+                    plugin.getLogger().log(Level.SEVERE, "Unable to save accounts", e);
+                    saved = false;
+                }
+                plugin.getMetrics().record(Timer.SAVE, start);
+                result.complete(saved);
+            });
+        } catch (RejectedExecutionException e) {
+            result.complete(false);
+        }
+        return result;
+    }
+
+    private <T> T call(Callable<T> callable) {
+        try {
+            return executor.submit(callable).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for storage", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("storage operation failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.nunnerycode.mint.storage;
+
+import com.tealcube.minecraft.bukkit.shade.apache.commons.lang3.Validate;
+import com.tealcube.minecraft.bukkit.shade.google.common.base.Optional;
+import info.faceland.mint.metrics.MintMetrics.Counter;
+import org.nunnerycode.mint.MintPlugin;
+import org.nunnerycode.mint.accounts.BankAccount;
+import org.nunnerycode.mint.accounts.PlayerAccount;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * Stores every balance in one flat binary file, read and written sequentially in a single pass.
+ * <p>
+ * Layout: {@code [int magic][int version][int players][int banks]}, then one
+ * {@code [long uuid-msb][long uuid-lsb][long balance]} record per player and per bank account, with
+ * balances in minor units, then a CRC32 of everything before it. An existing {@code data.json} is
+ * migrated the first time this storage starts without a {@code data.bin}.
+ * <p>
+ * Nothing is kept in memory between calls. A save reads the file, rewrites the records of the
+ * accounts it was given and writes the result to a new file, so the manager remains the only
+ * resident copy of the balances.
+ */
+public class BinaryDataStorage implements DataStorage {
+    private static final int MAGIC = 0x4D494E54;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 24;
+
+    private final MintPlugin plugin;
+    private final File dataFile;
+
+    public BinaryDataStorage(MintPlugin plugin) {
+        this.plugin = plugin;
+        this.dataFile = new File(plugin.getDataFolder(), "data.bin");
+    }
+
+    @Override
+    public synchronized void initialize() {
+        if (!dataFile.exists()) {
+            migrateFromYaml();
+            return;
+        }
+        read();
+    }
+
+    @Override
+    public void shutdown() {
+        // every save is written through, there is nothing left to flush
+    }
+
+    @Override
+    public synchronized Optional<PlayerAccount> loadPlayerAccount(UUID uuid) {
+        Validate.notNull(uuid, "uuid cannot be null");
+        ByteBuffer buffer = read();
+        if (buffer == null) {
+            return Optional.absent();
+        }
+        long balance = findRecord(buffer, HEADER_SIZE, players(buffer), uuid);
+        return balance == Long.MIN_VALUE ? Optional.<PlayerAccount>absent()
+                : Optional.of(new PlayerAccount(uuid, balance));
+    }
+
+    @Override
+    public synchronized Optional<BankAccount> loadBankAccount(UUID uuid) {
+        Validate.notNull(uuid, "uuid cannot be null");
+        ByteBuffer buffer = read();
+        if (buffer == null) {
+            return Optional.absent();
+        }
+        long balance = findRecord(buffer, HEADER_SIZE + players(buffer) * RECORD_SIZE, banks(buffer), uuid);
+        return balance == Long.MIN_VALUE ? Optional.<BankAccount>absent()
+                : Optional.of(new BankAccount(uuid, balance));
+    }
+
+    @Override
+    public boolean savePlayerAccount(PlayerAccount account) {
+        Validate.notNull(account, "account cannot be null");
+        return saveAccounts(Collections.singleton(account), Collections.<BankAccount>emptySet(),
+                Collections.<UUID>emptySet());
+    }
+
+    @Override
+    public boolean saveBankAccount(BankAccount account) {
+        Validate.notNull(account, "account cannot be null");
+        return saveAccounts(Collections.<PlayerAccount>emptySet(), Collections.singleton(account),
+                Collections.<UUID>emptySet());
+    }
+
+    @Override
+    public synchronized Set<PlayerAccount> loadPlayerAccounts() {
+        Set<PlayerAccount> accounts = new HashSet<>();
+        ByteBuffer buffer = read();
+        if (buffer != null) {
+            buffer.position(HEADER_SIZE);
+            for (int i = players(buffer); i > 0; i--) {
+                UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+                accounts.add(new PlayerAccount(uuid, buffer.getLong()));
+            }
+        }
+        return accounts;
+    }
+
+    @Override
+    public synchronized Set<BankAccount> loadBankAccounts() {
+        Set<BankAccount> accounts = new HashSet<>();
+        ByteBuffer buffer = read();
+        if (buffer != null) {
+            buffer.position(HEADER_SIZE + players(buffer) * RECORD_SIZE);
+            for (int i = banks(buffer); i > 0; i--) {
+                UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+                accounts.add(new BankAccount(uuid, buffer.getLong()));
+            }
+        }
+        return accounts;
+    }
+
+    @Override
+    public boolean savePlayerAccounts(Set<PlayerAccount> accounts) {
+        Validate.notNull(accounts, "accounts cannot be null");
+        return saveAccounts(accounts, Collections.<BankAccount>emptySet(), Collections.<UUID>emptySet());
+    }
+
+    @Override
+    public boolean saveBankAccounts(Set<BankAccount> accounts) {
+        Validate.notNull(accounts, "accounts cannot be null");
+        return saveAccounts(Collections.<PlayerAccount>emptySet(), accounts, Collections.<UUID>emptySet());
+    }
+
+    @Override
+    public boolean saveAccounts(Set<PlayerAccount> playerAccounts, Set<BankAccount> bankAccounts,
+                                Set<UUID> removedBankAccounts) {
+        Validate.notNull(playerAccounts, "playerAccounts cannot be null");
+        Validate.notNull(bankAccounts, "bankAccounts cannot be null");
+        Validate.notNull(removedBankAccounts, "removedBankAccounts cannot be null");
+        if (playerAccounts.isEmpty() && bankAccounts.isEmpty() && removedBankAccounts.isEmpty()) {
+            return true;
+        }
+        Map<UUID, Long> changedPlayers = new HashMap<>();
+        for (PlayerAccount account : playerAccounts) {
+            changedPlayers.put(account.getOwner(), account.getBalance());
+        }
+        Map<UUID, Long> changedBanks = new HashMap<>();
+        for (BankAccount account : bankAccounts) {
+            changedBanks.put(account.getOwner(), account.getBalance());
+        }
+        synchronized (this) {
+            ByteBuffer existing;
+            try {
+                existing = read();
+            } catch (IllegalStateException e) {
+                plugin.getLogger().log(Level.SEVERE, "Unable to save accounts", e);
+                return false;
+            }
+            return write(merge(existing, changedPlayers, changedBanks, removedBankAccounts));
+        }
+    }
+
+    private void migrateFromYaml() {
+        File yamlFile = new File(plugin.getDataFolder(), "data.json");
+        if (!yamlFile.exists()) {
+            return;
+        }
+        YamlDataStorage yamlStorage = new YamlDataStorage(plugin);
+        yamlStorage.initialize();
+        Map<UUID, Long> playerBalances = new HashMap<>();
+        for (PlayerAccount account : yamlStorage.loadPlayerAccounts()) {
+            playerBalances.put(account.getOwner(), account.getBalance());
+        }
+        Map<UUID, Long> bankBalances = new HashMap<>();
+        for (BankAccount account : yamlStorage.loadBankAccounts()) {
+            bankBalances.put(account.getOwner(), account.getBalance());
+        }
+        String migrated = playerBalances.size() + " player accounts and " + bankBalances.size() + " bank accounts";
+        if (!write(merge(null, playerBalances, bankBalances, Collections.<UUID>emptySet()))) {
+            throw new IllegalStateException("unable to migrate " + yamlFile.getName() + " to " + dataFile.getName());
+        }
+        File migratedFile = new File(plugin.getDataFolder(), "data.json.migrated");
+        if (!yamlFile.renameTo(migratedFile)) {
+            plugin.getLogger().warning("Unable to rename " + yamlFile.getName() + " after migrating it");
+        }
+        plugin.getLogger().info("Migrated " + migrated + " from " + yamlFile.getName() + " to " + dataFile.getName());
+    }
+
+    /**
+     * Reads and checks the whole file. Returns null if there is no file yet, and throws
+     * {@link IllegalStateException} if it cannot be read or is damaged.
+     */
+    private ByteBuffer read() {
+        if (!dataFile.exists()) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(dataFile.toPath()));
+            if (buffer.remaining() < HEADER_SIZE + 4) {
+                throw new IOException("file is too short");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, buffer.limit() - 4);
+            if (buffer.getInt(buffer.limit() - 4) != (int) crc.getValue()) {
+                throw new IOException("checksum mismatch");
+            }
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("not a balance file");
+            }
+            int version = buffer.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("unsupported version " + version);
+            }
+            if (buffer.limit() != HEADER_SIZE + (long) (players(buffer) + banks(buffer)) * RECORD_SIZE + 4) {
+                throw new IOException("record count does not match file size");
+            }
+            return buffer;
+        } catch (IOException e) {
+            throw new IllegalStateException("unable to read " + dataFile.getName(), e);
+        }
+    }
+
+    /**
+     * Copies the records of {@code existing}, which may be null, into a new file image. Changed
+     * balances replace the stored ones, accounts that were not stored yet are appended after
+     * their section and removed banks are left out. Consumes the changed maps.
+     */
+    private ByteBuffer merge(ByteBuffer existing, Map<UUID, Long> changedPlayers, Map<UUID, Long> changedBanks,
+                             Set<UUID> removedBanks) {
+        int storedPlayers = existing == null ? 0 : players(existing);
+        int storedBanks = existing == null ? 0 : banks(existing);
+        int records = storedPlayers + storedBanks + changedPlayers.size() + changedBanks.size();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + records * RECORD_SIZE + 4);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.position(HEADER_SIZE);
+        if (existing != null) {
+            existing.position(HEADER_SIZE);
+        }
+        int players = mergeRecords(existing, storedPlayers, changedPlayers,
+                Collections.<UUID>emptySet(), buffer);
+        int banks = mergeRecords(existing, storedBanks, changedBanks, removedBanks, buffer);
+        buffer.putInt(8, players);
+        buffer.putInt(12, banks);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private int mergeRecords(ByteBuffer existing, int stored, Map<UUID, Long> changed,
+                             Set<UUID> removed, ByteBuffer buffer) {
+        int written = 0;
+        for (int i = 0; i < stored; i++) {
+            UUID uuid = new UUID(existing.getLong(), existing.getLong());
+            long balance = existing.getLong();
+            if (removed.contains(uuid)) {
+                continue;
+            }
+            Long changedBalance = changed.remove(uuid);
+            writeRecord(buffer, uuid, changedBalance != null ? changedBalance : balance);
+            written++;
+        }
+        for (Map.Entry<UUID, Long> entry : changed.entrySet()) {
+            writeRecord(buffer, entry.getKey(), entry.getValue());
+            written++;
+        }
+        return written;
+    }
+
+    private long findRecord(ByteBuffer buffer, int offset, int count, UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        for (int i = 0; i < count; i++) {
+            int record = offset + i * RECORD_SIZE;
+            if (buffer.getLong(record) == msb && buffer.getLong(record + 8) == lsb) {
+                return buffer.getLong(record + 16);
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private static void writeRecord(ByteBuffer buffer, UUID uuid, long balance) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+        buffer.putLong(balance);
+    }
+
+    private static int players(ByteBuffer buffer) {
+        return buffer.getInt(8);
+    }
+
+    private static int banks(ByteBuffer buffer) {
+        return buffer.getInt(12);
+    }
+
+    private boolean write(ByteBuffer contents) {
+        try {
+            AtomicFiles.write(dataFile.toPath(), contents);
+            plugin.getMetrics().add(Counter.SAVED_BYTES, contents.limit());
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Unable to write " + dataFile.getName(), e);
+            return false;
+        }
+    }
+}
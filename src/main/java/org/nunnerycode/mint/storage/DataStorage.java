@@ -51,4 +51,12 @@ public interface DataStorage {
 
     boolean saveBankAccounts(Set<BankAccount> accounts);
 
+    /**
+     * Persists only the given changed accounts and deletes the given removed bank accounts in a
+     * single write, applying the removals first. Implementations should do nothing when all sets
+     * are empty.
+     */
+    boolean saveAccounts(Set<PlayerAccount> playerAccounts, Set<BankAccount> bankAccounts,
+                         Set<UUID> removedBankAccounts);
+
 }
@@ -0,0 +1,255 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.nunnerycode.mint.storage;
+
+import com.tealcube.minecraft.bukkit.shade.apache.commons.lang3.StringUtils;
+import com.tealcube.minecraft.bukkit.shade.apache.commons.lang3.Validate;
+import com.tealcube.minecraft.bukkit.shade.google.common.base.Optional;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.pixeloutlaw.minecraft.spigot.config.MasterConfiguration;
+import org.nunnerycode.mint.MintPlugin;
+import org.nunnerycode.mint.accounts.Account;
+import org.nunnerycode.mint.accounts.BankAccount;
+import org.nunnerycode.mint.accounts.PlayerAccount;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Stores accounts in a SQL database through a connection pool. Single accounts are read with one
+ * keyed query, and saves upsert the changed rows in JDBC batches inside a single transaction.
+ * Balances are stored as whole minor units in a {@code BIGINT} column.
+ */
+public class JdbcDataStorage implements DataStorage {
+    private static final int BATCH_SIZE = 500;
+
+    private final MintPlugin plugin;
+    private final SqlDialect dialect;
+    private final String playerTable;
+    private final String bankTable;
+    private HikariDataSource dataSource;
+
+    public JdbcDataStorage(MintPlugin plugin, SqlDialect dialect) {
+        this.plugin = plugin;
+        this.dialect = dialect;
+        String prefix = plugin.getSettings().getString("config.database.table-prefix", "bullion_");
+        this.playerTable = prefix + "player_accounts";
+        this.bankTable = prefix + "bank_accounts";
+    }
+
+    @Override
+    public void initialize() {
+        MasterConfiguration settings = plugin.getSettings();
+        String jdbcUrl = settings.getString("config.database.jdbc-url", "");
+        if (StringUtils.isBlank(jdbcUrl)) {
+            jdbcUrl = dialect.jdbcUrl(plugin.getDataFolder(),
+                    settings.getString("config.database.host", "localhost"),
+                    settings.getInt("config.database.port", 3306),
+                    settings.getString("config.database.database", "bullion"));
+        }
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("Bullion");
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(settings.getString("config.database.username", ""));
+        config.setPassword(settings.getString("config.database.password", ""));
+        config.setMaximumPoolSize(settings.getInt("config.database.pool-size", 4));
+        dialect.configure(config);
+        dataSource = new HikariDataSource(config);
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(dialect.createTableStatement(playerTable));
+            statement.executeUpdate(dialect.createTableStatement(bankTable));
+        } catch (SQLException e) {
+            throw new IllegalStateException("unable to create account tables", e);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @Override
+    public Optional<PlayerAccount> loadPlayerAccount(UUID uuid) {
+        Validate.notNull(uuid, "uuid cannot be null");
+        Long balance = loadBalance(playerTable, uuid);
+        return balance == null ? Optional.<PlayerAccount>absent() : Optional.of(new PlayerAccount(uuid, balance));
+    }
+
+    @Override
+    public Optional<BankAccount> loadBankAccount(UUID uuid) {
+        Validate.notNull(uuid, "uuid cannot be null");
+        Long balance = loadBalance(bankTable, uuid);
+        return balance == null ? Optional.<BankAccount>absent() : Optional.of(new BankAccount(uuid, balance));
+    }
+
+    @Override
+    public boolean savePlayerAccount(PlayerAccount account) {
+        Validate.notNull(account, "account cannot be null");
+        return saveAccounts(Collections.singleton(account), Collections.<BankAccount>emptySet(),
+                Collections.<UUID>emptySet());
+    }
+
+    @Override
+    public boolean saveBankAccount(BankAccount account) {
+        Validate.notNull(account, "account cannot be null");
+        return saveAccounts(Collections.<PlayerAccount>emptySet(), Collections.singleton(account),
+                Collections.<UUID>emptySet());
+    }
+
+    @Override
+    public Set<PlayerAccount> loadPlayerAccounts() {
+        Set<PlayerAccount> accounts = new HashSet<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT uuid, balance FROM " + playerTable);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                accounts.add(new PlayerAccount(UUID.fromString(resultSet.getString(1)),
+                        resultSet.getLong(2)));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("unable to load player accounts", e);
+        }
+        return accounts;
+    }
+
+    @Override
+    public Set<BankAccount> loadBankAccounts() {
+        Set<BankAccount> accounts = new HashSet<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT uuid, balance FROM " + bankTable);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                accounts.add(new BankAccount(UUID.fromString(resultSet.getString(1)),
+                        resultSet.getLong(2)));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("unable to load bank accounts", e);
+        }
+        return accounts;
+    }
+
+    @Override
+    public boolean savePlayerAccounts(Set<PlayerAccount> accounts) {
+        return saveAccounts(accounts, Collections.<BankAccount>emptySet(), Collections.<UUID>emptySet());
+    }
+
+    @Override
+    public boolean saveBankAccounts(Set<BankAccount> accounts) {
+        return saveAccounts(Collections.<PlayerAccount>emptySet(), accounts, Collections.<UUID>emptySet());
+    }
+
+    @Override
+    public boolean saveAccounts(Set<PlayerAccount> playerAccounts, Set<BankAccount> bankAccounts,
+                                Set<UUID> removedBankAccounts) {
+        Validate.notNull(playerAccounts, "playerAccounts cannot be null");
+        Validate.notNull(bankAccounts, "bankAccounts cannot be null");
+        Validate.notNull(removedBankAccounts, "removedBankAccounts cannot be null");
+        if (playerAccounts.isEmpty() && bankAccounts.isEmpty() && removedBankAccounts.isEmpty()) {
+            return true;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                delete(connection, bankTable, removedBankAccounts);
+                upsert(connection, playerTable, playerAccounts);
+                upsert(connection, bankTable, bankAccounts);
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Unable to save accounts", e);
+            return false;
+        }
+    }
+
+    private Long loadBalance(String table, UUID uuid) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT balance FROM " + table + " WHERE uuid = ?")) {
+            statement.setString(1, uuid.toString());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : null;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("unable to load account " + uuid, e);
+        }
+    }
+
+    private void delete(Connection connection, String table, Set<UUID> owners) throws SQLException {
+        if (owners.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM " + table + " WHERE uuid = ?")) {
+            int batched = 0;
+            for (UUID owner : owners) {
+                statement.setString(1, owner.toString());
+                statement.addBatch();
+                if (++batched % BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            if (batched % BATCH_SIZE != 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private void upsert(Connection connection, String table, Set<? extends Account> accounts) throws SQLException {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(dialect.upsertStatement(table))) {
+            int batched = 0;
+            for (Account account : accounts) {
+                statement.setString(1, account.getOwner().toString());
+                statement.setLong(2, account.getBalance());
+                statement.addBatch();
+                if (++batched % BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            if (batched % BATCH_SIZE != 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+}
@@ -0,0 +1,450 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.nunnerycode.mint.storage;
+
+import com.tealcube.minecraft.bukkit.shade.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ObjLongConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Balances kept in a memory-mapped file instead of on the heap.
+ * <p>
+ * The file is {@code [int magic][int version][int capacity][int size]} followed by
+ * {@code capacity} slots of {@code [long uuid-msb][long uuid-lsb][long balance]} holding balances
+ * in minor units, an open-addressed table probed linearly from a hash of the UUID. An all-zero
+ * UUID marks an empty slot. Writes land in the page cache straight away, so the balances survive
+ * the server process dying without any save; {@link #force()} is only needed to survive the
+ * machine going down.
+ * <p>
+ * Growing the table writes a new file of twice the capacity, named after its capacity, and only
+ * then switches to it. Opening picks the largest complete file and deletes the others.
+ */
+public class MappedLedger {
+
+    private static final int MAGIC = 0x4D4C4447;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 24;
+    private static final int SIZE_OFFSET = 12;
+    private static final int MIN_CAPACITY = 1 << 12;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final String FILE_PREFIX = "ledger-";
+    private static final String FILE_SUFFIX = ".bin";
+
+    private final Logger logger;
+    private final Path directory;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile ObjLongConsumer<UUID> changeListener = (uuid, balance) -> {
+    };
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int size;
+
+    public MappedLedger(Logger logger, Path directory) {
+        this.logger = logger;
+        this.directory = directory;
+    }
+
+    /**
+     * Receives every balance set through {@link #set(UUID, long)}, {@link #add} and
+     * {@link #compareAndSet} while the ledger is still locked, in the order the changes happened.
+     */
+    public void setChangeListener(ObjLongConsumer<UUID> changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    public void open() throws IOException {
+        lock.writeLock().lock();
+        try {
+            Validate.isTrue(channel == null, "ledger already open");
+            Files.createDirectories(directory);
+            int newest = 0;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+                for (Path file : files) {
+                    int fileCapacity = capacityOf(file);
+                    if (fileCapacity > newest && isComplete(file, fileCapacity)) {
+                        newest = fileCapacity;
+                    }
+                }
+            }
+            if (newest == 0) {
+                create(MIN_CAPACITY);
+            } else {
+                map(newest);
+                size = buffer.getInt(SIZE_OFFSET);
+            }
+            deleteStaleFiles();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (channel == null) {
+                return;
+            }
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            logger.warning("Unable to close the ledger: " + e.getMessage());
+        } finally {
+            channel = null;
+            buffer = null;
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes the mapped pages to disk.
+     */
+    public void force() {
+        lock.readLock().lock();
+        try {
+            if (buffer != null) {
+                buffer.force();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean contains(UUID uuid) {
+        checkKey(uuid);
+        lock.readLock().lock();
+        try {
+            return isOccupied(slotOffset(find(uuid)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the balance of the given account, adding it with a balance of 0 if it is missing.
+     */
+    public long getOrCreate(UUID uuid) {
+        checkKey(uuid);
+        lock.readLock().lock();
+        try {
+            int offset = slotOffset(find(uuid));
+            if (isOccupied(offset)) {
+                return buffer.getLong(offset + 16);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        set(uuid, 0L, false, false);
+        return get(uuid);
+    }
+
+    public long get(UUID uuid) {
+        checkKey(uuid);
+        lock.readLock().lock();
+        try {
+            return balanceAt(slotOffset(find(uuid)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void set(UUID uuid, long balance) {
+        checkKey(uuid);
+        set(uuid, balance, true, true);
+    }
+
+    /**
+     * Adds the account with a balance of 0 unless it exists. Returns true only if it was added.
+     */
+    public boolean create(UUID uuid) {
+        checkKey(uuid);
+        return set(uuid, 0L, false, true);
+    }
+
+    /**
+     * Sets a balance read from elsewhere without reporting it to the change listener.
+     */
+    public void load(UUID uuid, long balance) {
+        checkKey(uuid);
+        set(uuid, balance, true, false);
+    }
+
+    /**
+     * Adds {@code delta} to a balance in one step, adding the account if it is missing. A negative
+     * delta that would leave the balance below {@code floor} changes nothing. Returns the balance
+     * before the change.
+     *
+     * @throws ArithmeticException if the new balance would overflow, leaving the balance unchanged
+     */
+    public long add(UUID uuid, long delta, long floor) {
+        checkKey(uuid);
+        lock.writeLock().lock();
+        try {
+            long previous = balanceAt(slotOffset(find(uuid)));
+            long updated = Math.addExact(previous, delta);
+            if (delta >= 0 || updated >= floor) {
+                set(uuid, updated, true, true);
+            }
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean compareAndSet(UUID uuid, long expected, long update) {
+        checkKey(uuid);
+        lock.writeLock().lock();
+        try {
+            if (balanceAt(slotOffset(find(uuid))) != expected) {
+                return false;
+            }
+            set(uuid, update, true, true);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void forEach(ObjLongConsumer<UUID> action) {
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < capacity; slot++) {
+                int offset = slotOffset(slot);
+                if (isOccupied(offset)) {
+                    action.accept(new UUID(buffer.getLong(offset), buffer.getLong(offset + 8)),
+                            buffer.getLong(offset + 16));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean set(UUID uuid, long balance, boolean overwrite, boolean notify) {
+        lock.writeLock().lock();
+        try {
+            int offset = slotOffset(find(uuid));
+            if (isOccupied(offset)) {
+                if (overwrite) {
+                    buffer.putLong(offset + 16, balance);
+                }
+                if (overwrite && notify) {
+                    changeListener.accept(uuid, balance);
+                }
+                return false;
+            }
+            if ((size + 1) * 10L > capacity * 7L) {
+                Validate.validState(capacity < MAX_CAPACITY, "ledger is full");
+                try {
+                    rebuild(capacity << 1);
+                } catch (IOException e) {
+                    throw new IllegalStateException("unable to grow the ledger", e);
+                }
+                offset = slotOffset(find(uuid));
+            }
+            buffer.putLong(offset + 16, balance);
+            buffer.putLong(offset + 8, uuid.getLeastSignificantBits());
+            buffer.putLong(offset, uuid.getMostSignificantBits());
+            buffer.putInt(SIZE_OFFSET, ++size);
+            if (notify) {
+                changeListener.accept(uuid, balance);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies every balance into a new file of the given capacity and switches to it.
+     */
+    private void rebuild(int newCapacity) throws IOException {
+        FileChannel oldChannel = channel;
+        MappedByteBuffer oldBuffer = buffer;
+        int oldCapacity = capacity;
+        try {
+            create(newCapacity);
+            for (int slot = 0; slot < oldCapacity; slot++) {
+                int from = HEADER_SIZE + slot * SLOT_SIZE;
+                long msb = oldBuffer.getLong(from);
+                long lsb = oldBuffer.getLong(from + 8);
+                if (msb != 0 || lsb != 0) {
+                    int to = slotOffset(find(msb, lsb));
+                    buffer.putLong(to, msb);
+                    buffer.putLong(to + 8, lsb);
+                    buffer.putLong(to + 16, oldBuffer.getLong(from + 16));
+                }
+            }
+            buffer.putInt(SIZE_OFFSET, size);
+            buffer.force();
+            buffer.putInt(0, MAGIC);
+            buffer.force();
+        } catch (IOException | RuntimeException e) {
+            channel = oldChannel;
+            buffer = oldBuffer;
+            capacity = oldCapacity;
+            throw e;
+        }
+        try {
+            oldChannel.close();
+        } catch (IOException e) {
+            logger.warning("Unable to close the old ledger file: " + e.getMessage());
+        }
+        deleteStaleFiles();
+    }
+
+    /**
+     * Maps a new, zeroed file of the given capacity. Its magic is only written once it is complete,
+     * except for the very first file which starts out empty.
+     */
+    private void create(int newCapacity) throws IOException {
+        Path file = fileFor(newCapacity);
+        Files.deleteIfExists(file);
+        map(newCapacity);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, newCapacity);
+        if (size == 0 && newCapacity == MIN_CAPACITY) {
+            buffer.putInt(0, MAGIC);
+        }
+    }
+
+    private void map(int newCapacity) throws IOException {
+        channel = FileChannel.open(fileFor(newCapacity), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * SLOT_SIZE);
+        capacity = newCapacity;
+    }
+
+    private void deleteStaleFiles() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                if (capacityOf(file) != capacity) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("Unable to delete old ledger files: " + e.getMessage());
+        }
+    }
+
+    private boolean isComplete(Path file, int fileCapacity) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (fileChannel.size() != HEADER_SIZE + (long) fileCapacity * SLOT_SIZE) {
+                return false;
+            }
+            MappedByteBuffer header = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(8) != fileCapacity) {
+                return false;
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("unsupported ledger version " + header.getInt(4) + " in " + file.getFileName());
+            }
+            return true;
+        }
+    }
+
+    private int find(UUID uuid) {
+        return find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    private int find(long msb, long lsb) {
+        int mask = capacity - 1;
+        int slot = hash(msb, lsb) & mask;
+        while (true) {
+            int offset = slotOffset(slot);
+            long slotMsb = buffer.getLong(offset);
+            long slotLsb = buffer.getLong(offset + 8);
+            if ((slotMsb == msb && slotLsb == lsb) || (slotMsb == 0 && slotLsb == 0)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private long balanceAt(int offset) {
+        return isOccupied(offset) ? buffer.getLong(offset + 16) : 0L;
+    }
+
+    private boolean isOccupied(int offset) {
+        return buffer.getLong(offset) != 0 || buffer.getLong(offset + 8) != 0;
+    }
+
+    private Path fileFor(int fileCapacity) {
+        return directory.resolve(FILE_PREFIX + fileCapacity + FILE_SUFFIX);
+    }
+
+    private static int capacityOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            int fileCapacity = Integer.parseInt(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+            return Integer.bitCount(fileCapacity) == 1 && fileCapacity >= MIN_CAPACITY
+                    && fileCapacity <= MAX_CAPACITY ? fileCapacity : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb ^ Long.rotateLeft(lsb, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static void checkKey(UUID uuid) {
+        Validate.notNull(uuid, "uuid cannot be null");
+        Validate.isTrue(uuid.getMostSignificantBits() != 0 || uuid.getLeastSignificantBits() != 0,
+                "the nil uuid cannot be stored");
+    }
+}
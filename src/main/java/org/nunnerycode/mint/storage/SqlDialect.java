@@ -0,0 +1,87 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.nunnerycode.mint.storage;
+
+import com.zaxxer.hikari.HikariConfig;
+
+import java.io.File;
+
+/**
+ * The SQL differences between the databases {@link JdbcDataStorage} can talk to.
+ */
+public enum SqlDialect {
+
+    MYSQL("INSERT INTO %s (uuid, balance) VALUES (?, ?) ON DUPLICATE KEY UPDATE balance = VALUES(balance)") {
+        @Override
+        String jdbcUrl(File dataFolder, String host, int port, String database) {
+            return "jdbc:mysql://" + host + ":" + port + "/" + database;
+        }
+
+        @Override
+        void configure(HikariConfig config) {
+            config.addDataSourceProperty("rewriteBatchedStatements", "true");
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+        }
+    },
+    SQLITE("INSERT INTO %s (uuid, balance) VALUES (?, ?) ON CONFLICT(uuid) DO UPDATE SET balance = excluded.balance") {
+        @Override
+        String jdbcUrl(File dataFolder, String host, int port, String database) {
+            return "jdbc:sqlite:" + new File(dataFolder, "data.db").getAbsolutePath();
+        }
+
+        @Override
+        void configure(HikariConfig config) {
+            // SQLite allows a single writer, extra connections would only wait on its file lock
+            config.setMaximumPoolSize(1);
+        }
+    },
+    H2("MERGE INTO %s (uuid, balance) KEY (uuid) VALUES (?, ?)") {
+        @Override
+        String jdbcUrl(File dataFolder, String host, int port, String database) {
+            return "jdbc:h2:" + new File(dataFolder, "data").getAbsolutePath();
+        }
+
+        @Override
+        void configure(HikariConfig config) {
+        }
+    };
+
+    private final String upsertStatement;
+
+    SqlDialect(String upsertStatement) {
+        this.upsertStatement = upsertStatement;
+    }
+
+    String createTableStatement(String table) {
+        return "CREATE TABLE IF NOT EXISTS " + table + " (uuid CHAR(36) NOT NULL PRIMARY KEY, balance BIGINT NOT NULL)";
+    }
+
+    String upsertStatement(String table) {
+        return String.format(upsertStatement, table);
+    }
+
+    abstract String jdbcUrl(File dataFolder, String host, int port, String database);
+
+    abstract void configure(HikariConfig config);
+}
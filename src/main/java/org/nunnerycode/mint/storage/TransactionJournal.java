@@ -0,0 +1,432 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.nunnerycode.mint.storage;
+
+import com.tealcube.minecraft.bukkit.shade.apache.commons.lang3.Validate;
+import org.nunnerycode.mint.accounts.AccountSnapshot;
+import org.nunnerycode.mint.accounts.BankAccount;
+import org.nunnerycode.mint.accounts.PlayerAccount;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of balance changes made between two saves.
+ * <p>
+ * Each record is {@code [int length][byte type][long uuid-msb][long uuid-lsb][long balance][int crc32]}
+ * and holds the absolute balance after the change in minor units, so replaying a record twice is
+ * harmless. A bank removal record marks a deleted bank with a balance of zero.
+ * Appends only copy into a buffer; a background thread writes and syncs the buffer every commit
+ * interval, which bounds what a crash can lose to that interval.
+ * <p>
+ * The log is split into numbered segment files. Every save seals the open segment, and once the
+ * save has reached storage the sealed segments are released and deleted.
+ * <p>
+ * Records that fail to reach disk are kept and written ahead of newer ones on the next commit. A
+ * journal that keeps failing reports the error to its failure listener once and goes on retrying.
+ */
+public class TransactionJournal {
+
+    private static final byte PLAYER_RECORD = 1;
+    private static final byte BANK_RECORD = 2;
+    private static final byte BANK_REMOVAL_RECORD = 3;
+    private static final int PAYLOAD_SIZE = 1 + 8 + 8 + 8;
+    private static final int RECORD_SIZE = 4 + PAYLOAD_SIZE + 4;
+    private static final int INITIAL_CAPACITY = RECORD_SIZE * 2048;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".bin";
+    private static final int MAX_FAILED_COMMITS = 20;
+
+    private final Logger logger;
+    private final Path directory;
+    private final long commitIntervalNanos;
+
+    private final Object lock = new Object();
+    private final CRC32 crc = new CRC32();
+    private final Deque<Chunk> sealedChunks = new ArrayDeque<>();
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_CAPACITY);
+    private long openSegment;
+    private long releasableFrom;
+    private long releasedUpTo = -1;
+
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_CAPACITY);
+    private final Deque<Chunk> unwritten = new ArrayDeque<>();
+    private FileChannel channel;
+    private long channelSegment = -1;
+    private long channelSize;
+    private long deletedUpTo = -1;
+    private int failedCommits;
+
+    private volatile Consumer<IOException> failureListener;
+    private volatile IOException failure;
+    private volatile boolean running;
+    private Thread committer;
+
+    public TransactionJournal(Logger logger, Path directory, long commitIntervalMillis) {
+        this.logger = logger;
+        this.directory = directory;
+        this.commitIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, commitIntervalMillis));
+    }
+
+    /**
+     * Reads every segment left behind by the last run and starts appending to a new one. The
+     * returned snapshot holds the last journaled balance of every account and the newest segment
+     * it was read from, which should be released once the snapshot has been saved.
+     */
+    public AccountSnapshot recover() throws IOException {
+        Validate.isTrue(committer == null, "journal already started");
+        Files.createDirectories(directory);
+        List<Long> segments = listSegments();
+        Map<UUID, Long> playerBalances = new HashMap<>();
+        Map<UUID, Long> bankBalances = new HashMap<>();
+        Set<UUID> removedBanks = new HashSet<>();
+        for (long segment : segments) {
+            readSegment(segment, playerBalances, bankBalances, removedBanks);
+        }
+        long lastSegment = segments.isEmpty() ? -1 : segments.get(segments.size() - 1);
+        synchronized (lock) {
+            openSegment = lastSegment + 1;
+        }
+
+        running = true;
+        committer = new Thread(this::run, "Bullion Journal");
+        committer.setDaemon(true);
+        committer.start();
+
+        Set<PlayerAccount> playerAccounts = new HashSet<>();
+        for (Map.Entry<UUID, Long> entry : playerBalances.entrySet()) {
+            playerAccounts.add(new PlayerAccount(entry.getKey(), entry.getValue()));
+        }
+        Set<BankAccount> bankAccounts = new HashSet<>();
+        for (Map.Entry<UUID, Long> entry : bankBalances.entrySet()) {
+            bankAccounts.add(new BankAccount(entry.getKey(), entry.getValue()));
+        }
+        return new AccountSnapshot(playerAccounts, bankAccounts, removedBanks, -1, lastSegment);
+    }
+
+    public void appendPlayerBalance(UUID uuid, long balance) {
+        append(PLAYER_RECORD, uuid, balance);
+    }
+
+    public void appendBankBalance(UUID uuid, long balance) {
+        append(BANK_RECORD, uuid, balance);
+    }
+
+    public void appendBankRemoval(UUID uuid) {
+        append(BANK_REMOVAL_RECORD, uuid, 0L);
+    }
+
+    /**
+     * Sets the listener told, from the commit thread, when records have failed to reach disk for
+     * {@value #MAX_FAILED_COMMITS} commits in a row. It is told again only after a commit has
+     * succeeded in between.
+     */
+    public void setFailureListener(Consumer<IOException> failureListener) {
+        this.failureListener = failureListener;
+    }
+
+    /**
+     * Returns true while records are waiting in memory because writing them keeps failing.
+     */
+    public boolean isBroken() {
+        return failure != null;
+    }
+
+    /**
+     * Closes the open segment to new records and returns its number. Records appended afterwards
+     * go to the next segment. Nothing is written to disk on the calling thread.
+     */
+    public long seal() {
+        synchronized (lock) {
+            long sealed = openSegment;
+            sealedChunks.add(new Chunk(sealed, pending));
+            pending = ByteBuffer.allocate(INITIAL_CAPACITY);
+            openSegment++;
+            return sealed;
+        }
+    }
+
+    /**
+     * Marks every segment up to and including the given one as saved, so it is deleted on the
+     * next commit. Ignored while a failed save is still waiting to be retried.
+     */
+    public void release(long segment) {
+        synchronized (lock) {
+            if (segment >= releasableFrom) {
+                releasedUpTo = Math.max(releasedUpTo, segment);
+            }
+        }
+    }
+
+    /**
+     * Keeps every existing segment until a segment sealed after this call is released. Used when
+     * a save fails and its accounts have to wait for the next one.
+     */
+    public void hold() {
+        synchronized (lock) {
+            releasableFrom = openSegment;
+        }
+    }
+
+    /**
+     * Stops the commit thread after a final commit and closes the open segment. Records that
+     * still could not be written are reported and lost.
+     */
+    public void close() {
+        running = false;
+        if (committer == null) {
+            return;
+        }
+        LockSupport.unpark(committer);
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        committer = null;
+        closeChannel();
+        if (!unwritten.isEmpty()) {
+            logger.severe("Closing the transaction journal with unwritten records for "
+                    + unwritten.size() + " segment(s)");
+        }
+    }
+
+    private void append(byte type, UUID uuid, long balance) {
+        synchronized (lock) {
+            if (pending.remaining() < RECORD_SIZE) {
+                ByteBuffer grown = ByteBuffer.allocate(pending.capacity() * 2);
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+            int start = pending.position();
+            pending.putInt(PAYLOAD_SIZE);
+            pending.put(type);
+            pending.putLong(uuid.getMostSignificantBits());
+            pending.putLong(uuid.getLeastSignificantBits());
+            pending.putLong(balance);
+            crc.reset();
+            crc.update(pending.array(), start + 4, PAYLOAD_SIZE);
+            pending.putInt((int) crc.getValue());
+        }
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(this, commitIntervalNanos);
+            commit();
+        }
+        commit();
+    }
+
+    private void commit() {
+        ByteBuffer current;
+        long currentSegment;
+        long released;
+        synchronized (lock) {
+            for (Chunk chunk : sealedChunks) {
+                chunk.buffer.flip();
+                unwritten.add(chunk);
+            }
+            sealedChunks.clear();
+            current = pending;
+            currentSegment = openSegment;
+            pending = spare != null ? spare : ByteBuffer.allocate(INITIAL_CAPACITY);
+            spare = null;
+            released = releasedUpTo;
+        }
+        current.flip();
+        unwritten.add(new Chunk(currentSegment, current));
+        try {
+            while (!unwritten.isEmpty()) {
+                Chunk chunk = unwritten.peek();
+                // a released segment is already in storage and its file is about to be deleted
+                if (chunk.segment > released) {
+                    write(chunk.segment, chunk.buffer);
+                }
+                unwritten.poll();
+                if (chunk.segment != currentSegment && channelSegment == chunk.segment) {
+                    closeChannel();
+                }
+            }
+            current.clear();
+            spare = current;
+            if (failedCommits > 0) {
+                failedCommits = 0;
+                if (failure != null) {
+                    failure = null;
+                    logger.info("Transaction journal writes succeed again");
+                }
+            }
+        } catch (IOException e) {
+            failedCommits++;
+            if (failedCommits == 1) {
+                logger.log(Level.SEVERE, "Unable to write transaction journal, retrying", e);
+            } else if (failedCommits == MAX_FAILED_COMMITS) {
+                failure = e;
+                Consumer<IOException> listener = failureListener;
+                if (listener != null) {
+                    listener.accept(e);
+                }
+            }
+        }
+        long deletable = Math.min(released, currentSegment - 1);
+        if (deletable > deletedUpTo) {
+            deleteSegments(deletable);
+        }
+    }
+
+    private void write(long segment, ByteBuffer buffer) throws IOException {
+        if (!buffer.hasRemaining() && failedCommits == 0) {
+            return;
+        }
+        if (channelSegment != segment) {
+            closeChannel();
+            channel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            channelSegment = segment;
+            channelSize = channel.size();
+        } else if (failedCommits > 0 && channel.size() > channelSize) {
+            // cut off whatever part of a record the failed attempt left behind
+            channel.truncate(channelSize);
+        }
+        while (buffer.hasRemaining()) {
+            channelSize += channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to close journal segment " + channelSegment, e);
+        }
+        channel = null;
+        channelSegment = -1;
+    }
+
+    private void deleteSegments(long upTo) {
+        try {
+            for (long segment : listSegments()) {
+                if (segment > upTo) {
+                    break;
+                }
+                if (segment != channelSegment) {
+                    Files.deleteIfExists(segmentPath(segment));
+                }
+            }
+            deletedUpTo = upTo;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to delete released journal segments", e);
+        }
+    }
+
+    private void readSegment(long segment, Map<UUID, Long> playerBalances, Map<UUID, Long> bankBalances,
+            Set<UUID> removedBanks) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segmentPath(segment)));
+        CRC32 checksum = new CRC32();
+        while (buffer.remaining() >= 4) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length != PAYLOAD_SIZE || buffer.remaining() < length + 4) {
+                logger.warning("Journal segment " + segment + " ends in a partial record at byte " + start);
+                return;
+            }
+            checksum.reset();
+            checksum.update(buffer.array(), start + 4, PAYLOAD_SIZE);
+            byte type = buffer.get();
+            UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+            long balance = buffer.getLong();
+            if (buffer.getInt() != (int) checksum.getValue()) {
+                logger.warning("Journal segment " + segment + " has a corrupt record at byte " + start);
+                return;
+            }
+            if (type == PLAYER_RECORD) {
+                playerBalances.put(uuid, balance);
+            } else if (type == BANK_RECORD) {
+                bankBalances.put(uuid, balance);
+                removedBanks.remove(uuid);
+            } else if (type == BANK_REMOVAL_RECORD) {
+                bankBalances.remove(uuid);
+                removedBanks.add(uuid);
+            }
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warning("Ignoring unexpected journal file " + name);
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%012d", segment) + SEGMENT_SUFFIX);
+    }
+
+    private static class Chunk {
+        private final long segment;
+        private final ByteBuffer buffer;
+
+        private Chunk(long segment, ByteBuffer buffer) {
+            this.segment = segment;
+            this.buffer = buffer;
+        }
+    }
+}
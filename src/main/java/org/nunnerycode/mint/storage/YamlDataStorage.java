@@ -24,51 +24,70 @@ package org.nunnerycode.mint.storage;
 
 import com.tealcube.minecraft.bukkit.shade.apache.commons.lang3.Validate;
 import com.tealcube.minecraft.bukkit.shade.google.common.base.Optional;
+import info.faceland.mint.metrics.MintMetrics.Counter;
 import io.pixeloutlaw.minecraft.spigot.config.SmartYamlConfiguration;
 import org.bukkit.configuration.ConfigurationSection;
 import org.nunnerycode.mint.MintPlugin;
 import org.nunnerycode.mint.accounts.BankAccount;
+import org.nunnerycode.mint.accounts.Money;
 import org.nunnerycode.mint.accounts.PlayerAccount;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
+import java.util.logging.Level;
 
+/**
+ * Stores every balance in {@code data.json}, kept in memory as one YAML document. A save only
+ * touches the changed entries of that document, but the whole file is still rewritten each time,
+ * so the cost of an autosave grows with the number of accounts. Only the JDBC storage writes just
+ * the changed rows.
+ */
 public class YamlDataStorage implements DataStorage {
+    private final MintPlugin plugin;
+    private final File dataFile;
     private final SmartYamlConfiguration dataYAML;
 
     public YamlDataStorage(MintPlugin plugin) {
-        this.dataYAML = new SmartYamlConfiguration(new File(plugin.getDataFolder(), "data.json"));
+        this.plugin = plugin;
+        this.dataFile = new File(plugin.getDataFolder(), "data.json");
+        this.dataYAML = new SmartYamlConfiguration(dataFile);
     }
 
     @Override
-    public void initialize() {
+    public synchronized void initialize() {
         this.dataYAML.load();
     }
 
     @Override
     public void shutdown() {
-        this.dataYAML.save();
+        write(serialize());
     }
 
     @Override
-    public Optional<PlayerAccount> loadPlayerAccount(UUID uuid) {
+    public synchronized Optional<PlayerAccount> loadPlayerAccount(UUID uuid) {
         Validate.notNull(uuid, "uuid cannot be null");
         Optional<PlayerAccount> accountOptional = Optional.absent();
         if (dataYAML.isSet("player." + uuid.toString())) {
-            PlayerAccount account = new PlayerAccount(uuid, dataYAML.getDouble("player." + uuid.toString()));
+            PlayerAccount account = new PlayerAccount(uuid,
+                    Money.toMinor(dataYAML.getDouble("player." + uuid.toString())));
             accountOptional = Optional.of(account);
         }
         return accountOptional;
     }
 
     @Override
-    public Optional<BankAccount> loadBankAccount(UUID uuid) {
+    public synchronized Optional<BankAccount> loadBankAccount(UUID uuid) {
         Validate.notNull(uuid, "uuid cannot be null");
         Optional<BankAccount> accountOptional = Optional.absent();
-        if (dataYAML.isSet("player." + uuid.toString())) {
-            BankAccount account = new BankAccount(uuid, dataYAML.getDouble("bank." + uuid.toString()));
+        if (dataYAML.isSet("bank." + uuid.toString())) {
+            BankAccount account = new BankAccount(uuid,
+                    Money.toMinor(dataYAML.getDouble("bank." + uuid.toString())));
             accountOptional = Optional.of(account);
         }
         return accountOptional;
@@ -77,21 +96,19 @@ public class YamlDataStorage implements DataStorage {
     @Override
     public boolean savePlayerAccount(PlayerAccount account) {
         Validate.notNull(account, "account cannot be null");
-        dataYAML.set("player." + account.getOwner().toString(), account.getBalance());
-        dataYAML.save();
-        return true;
+        return saveAccounts(Collections.singleton(account), Collections.<BankAccount>emptySet(),
+                Collections.<UUID>emptySet());
     }
 
     @Override
     public boolean saveBankAccount(BankAccount account) {
         Validate.notNull(account, "account cannot be null");
-        dataYAML.set("bank." + account.getOwner().toString(), account.getBalance());
-        dataYAML.save();
-        return true;
+        return saveAccounts(Collections.<PlayerAccount>emptySet(), Collections.singleton(account),
+                Collections.<UUID>emptySet());
     }
 
     @Override
-    public Set<PlayerAccount> loadPlayerAccounts() {
+    public synchronized Set<PlayerAccount> loadPlayerAccounts() {
         Set<PlayerAccount> accounts = new HashSet<>();
         dataYAML.load();
         if (!dataYAML.isConfigurationSection("player")) {
@@ -100,7 +117,7 @@ public class YamlDataStorage implements DataStorage {
         ConfigurationSection cs = dataYAML.getConfigurationSection("player");
         for (String key : cs.getKeys(false)) {
             UUID uniqueID = UUID.fromString(key);
-            double balance = cs.getDouble(key);
+            long balance = Money.toMinor(cs.getDouble(key));
             PlayerAccount account = new PlayerAccount(uniqueID, balance);
             accounts.add(account);
         }
@@ -108,7 +125,7 @@ public class YamlDataStorage implements DataStorage {
     }
 
     @Override
-    public Set<BankAccount> loadBankAccounts() {
+    public synchronized Set<BankAccount> loadBankAccounts() {
         Set<BankAccount> accounts = new HashSet<>();
         dataYAML.load();
         if (!dataYAML.isConfigurationSection("bank")) {
@@ -117,7 +134,7 @@ public class YamlDataStorage implements DataStorage {
         ConfigurationSection cs = dataYAML.getConfigurationSection("bank");
         for (String key : cs.getKeys(false)) {
             UUID uniqueID = UUID.fromString(key);
-            double balance = cs.getDouble(key);
+            long balance = Money.toMinor(cs.getDouble(key));
             BankAccount account = new BankAccount(uniqueID, balance);
             accounts.add(account);
         }
@@ -127,20 +144,57 @@ public class YamlDataStorage implements DataStorage {
     @Override
     public boolean savePlayerAccounts(Set<PlayerAccount> accounts) {
         Validate.notNull(accounts, "accounts cannot be null");
-        for (PlayerAccount account : accounts) {
-            dataYAML.set("player." + account.getOwner().toString(), account.getBalance());
-        }
-        dataYAML.save();
-        return true;
+        return saveAccounts(accounts, Collections.<BankAccount>emptySet(), Collections.<UUID>emptySet());
     }
 
     @Override
     public boolean saveBankAccounts(Set<BankAccount> accounts) {
         Validate.notNull(accounts, "accounts cannot be null");
-        for (BankAccount account : accounts) {
-            dataYAML.set("bank." + account.getOwner().toString(), account.getBalance());
+        return saveAccounts(Collections.<PlayerAccount>emptySet(), accounts, Collections.<UUID>emptySet());
+    }
+
+    @Override
+    public boolean saveAccounts(Set<PlayerAccount> playerAccounts, Set<BankAccount> bankAccounts,
+                                Set<UUID> removedBankAccounts) {
+        Validate.notNull(playerAccounts, "playerAccounts cannot be null");
+        Validate.notNull(bankAccounts, "bankAccounts cannot be null");
+        Validate.notNull(removedBankAccounts, "removedBankAccounts cannot be null");
+        if (playerAccounts.isEmpty() && bankAccounts.isEmpty() && removedBankAccounts.isEmpty()) {
+            return true;
+        }
+        String contents;
+        synchronized (this) {
+            for (UUID owner : removedBankAccounts) {
+                dataYAML.set("bank." + owner.toString(), null);
+            }
+            for (PlayerAccount account : playerAccounts) {
+                dataYAML.set("player." + account.getOwner().toString(), Money.toMajor(account.getBalance()));
+            }
+            for (BankAccount account : bankAccounts) {
+                dataYAML.set("bank." + account.getOwner().toString(), Money.toMajor(account.getBalance()));
+            }
+            contents = dataYAML.saveToString();
+        }
+        return write(contents);
+    }
+
+    private synchronized String serialize() {
+        return dataYAML.saveToString();
+    }
+
+    /**
+     * Replaces the file through {@link AtomicFiles}. Only the storage thread writes, so this runs
+     * outside the lock that readers wait on.
+     */
+    private boolean write(String contents) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8));
+            AtomicFiles.write(dataFile.toPath(), buffer);
+            plugin.getMetrics().add(Counter.SAVED_BYTES, buffer.limit());
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Unable to write " + dataFile.getName(), e);
+            return false;
         }
-        dataYAML.save();
-        return true;
     }
 }